@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.cli;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+
+import joptsimple.OptionParser;
+import net.minecraftforge.mcmaven.impl.cache.RemoteCacheServer;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+/**
+ * Runs a simple remote build cache, backed by a directory, for use with --remote-cache.
+ * This runs until the process is killed.
+ */
+class CacheServerTask {
+    static OptionParser run(String[] args, boolean getParser) throws Exception {
+        var parser = new OptionParser();
+        parser.allowsUnrecognizedOptions();
+
+        //@formatter:off
+        // help message
+        var helpO = parser.accepts("help",
+            "Displays this help message and exits")
+            .forHelp();
+
+        var dirO = parser.accepts("dir",
+            "Directory to store the cached outputs in")
+            .withRequiredArg().ofType(File.class).defaultsTo(new File("remote-cache"));
+
+        var portO = parser.accepts("port",
+            "Port to listen on")
+            .withRequiredArg().ofType(Integer.class).defaultsTo(8080);
+        //@formatter:on
+
+        if (getParser)
+            return parser;
+
+        var options = parser.parse(args);
+        if (options.has(helpO)) {
+            parser.printHelpOn(LOGGER.getInfo());
+            LOGGER.release();
+            return parser;
+        }
+
+        var dir = options.valueOf(dirO);
+        var server = new RemoteCacheServer(dir, options.valueOf(portO));
+        server.start();
+
+        LOGGER.info("  Directory: " + dir.getAbsolutePath());
+        LOGGER.info("  URL:       http://localhost:" + server.port() + '/');
+        LOGGER.release();
+
+        new CountDownLatch(1).await();
+        return parser;
+    }
+}
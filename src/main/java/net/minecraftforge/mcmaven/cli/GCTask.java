@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.cli;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+
+import joptsimple.OptionParser;
+import net.minecraftforge.mcmaven.impl.cache.Cache;
+import net.minecraftforge.mcmaven.impl.cache.CacheCleaner;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+/**
+ * Evicts the least recently used cache entries until the cache fits in a size budget.
+ * Entries that another Mavenizer process is currently building are skipped.
+ */
+class GCTask {
+    static OptionParser run(String[] args, boolean getParser) throws Exception {
+        var parser = new OptionParser();
+        parser.allowsUnrecognizedOptions();
+
+        //@formatter:off
+        // help message
+        var helpO = parser.accepts("help",
+            "Displays this help message and exits")
+            .forHelp();
+
+        var cacheO = parser.accepts("cache",
+            "Directory to store data needed for this program")
+            .withRequiredArg().ofType(File.class).defaultsTo(new File("cache"));
+
+        var localCacheO = parser.accepts("local-cache",
+            "Directory to store the project specific cache files, opposed to the global cache")
+            .withRequiredArg().ofType(File.class).defaultsTo(new File("cache/local"));
+
+        var jdkCacheO = parser.accepts("jdk-cache",
+            "Directory to store jdks downloaded from the disoco api, these are never evicted")
+            .withRequiredArg().ofType(File.class).defaultsTo(new File("cache/jdks"));
+
+        var maxSizeO = parser.accepts("max-size",
+            "The size to shrink the cache to, such as 500M or 20G")
+            .withRequiredArg().ofType(String.class).required();
+
+        var dryRunO = parser.accepts("dry-run",
+            "Only list what would be evicted");
+        //@formatter:on
+
+        if (getParser)
+            return parser;
+
+        var options = parser.parse(args);
+        if (options.has(helpO)) {
+            parser.printHelpOn(LOGGER.getInfo());
+            LOGGER.release();
+            return parser;
+        }
+
+        var cache = options.valueOf(cacheO);
+        var jdkCache = !options.has(cacheO) || options.has(jdkCacheO)
+            ? options.valueOf(jdkCacheO)
+            : new File(cache, "jdks");
+        var localCache = !options.has(cacheO) || options.has(localCacheO)
+            ? options.valueOf(localCacheO)
+            : new File(cache, "local");
+
+        LOGGER.info("  Cache:       " + cache.getAbsolutePath());
+        LOGGER.info("  Local Cache: " + localCache.getAbsolutePath());
+        LOGGER.info("  Max Size:    " + options.valueOf(maxSizeO));
+        LOGGER.info();
+
+        var caches = new Cache(cache, localCache, jdkCache, Map.of());
+        // Nothing is protected, this runs on its own so none of the entries are in use by us. Anything another
+        // process is building or using holds its lock, which the cleaner skips.
+        new CacheCleaner(caches).clean(CacheCleaner.parseSize(options.valueOf(maxSizeO)), Set.of(), options.has(dryRunO));
+        LOGGER.release();
+
+        return parser;
+    }
+}
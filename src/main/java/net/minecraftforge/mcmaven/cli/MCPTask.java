@@ -20,6 +20,7 @@ import joptsimple.OptionParser;
 import net.minecraftforge.mcmaven.impl.Mavenizer;
 import net.minecraftforge.mcmaven.impl.MinecraftMaven;
 import net.minecraftforge.mcmaven.impl.cache.Cache;
+import net.minecraftforge.mcmaven.impl.cache.CacheCleaner;
 import net.minecraftforge.mcmaven.impl.mappings.Mappings;
 import net.minecraftforge.mcmaven.impl.mappings.ResolvedMappings;
 import net.minecraftforge.mcmaven.impl.repo.forge.Patcher;
@@ -28,7 +29,12 @@ import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCPConfigRepo;
 import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCPSide;
 import net.minecraftforge.mcmaven.impl.tasks.RenameTask;
 import net.minecraftforge.mcmaven.impl.util.Artifact;
+import net.minecraftforge.mcmaven.impl.util.ClassDataSharing;
+import net.minecraftforge.mcmaven.impl.util.DecompileHeap;
+import net.minecraftforge.mcmaven.impl.util.FileLocks;
+import net.minecraftforge.mcmaven.impl.util.MemoryBudget;
 import net.minecraftforge.mcmaven.impl.util.Task;
+import net.minecraftforge.mcmaven.impl.util.TrackedHashStore;
 import net.minecraftforge.mcmaven.impl.util.Util;
 import net.minecraftforge.util.data.json.JsonData;
 import net.minecraftforge.util.file.FileUtils;
@@ -100,6 +106,11 @@ class MCPTask {
             "Overrides the -Xmx argument passed into the decompile sub-processes")
             .withRequiredArg();
 
+        // limit how many memory hungry steps run at once
+        var memoryBudgetO = parser.accepts("memory-budget",
+            "Total memory the decompile, recompile and other heavy steps may use at once, shared with other processes using the same cache, such as 16G. Defaults to the last budget given for this cache, or the physical memory of this machine")
+            .withRequiredArg().ofType(String.class);
+
         // mcp artifact output
         var outputO = parser.accepts("output",
                 "File to output a JSON containing paths to extra files")
@@ -198,12 +209,24 @@ class MCPTask {
             Util.filter(LOGGER, "  SAS:        ", sas);
         LOGGER.info();
 
-        var task = new MCPTask(outputDir, new Cache(cacheRoot, jdkCacheRoot), artifact, pipeline, mappings);
-        var ret = task.classes();
-        if(mappings != null)
-            task.mappings();
-        if (!disableDecompile)
-            ret = task.decompile(ats, sas);
+        var caches = new Cache(cacheRoot, jdkCacheRoot);
+        FileLocks.init(cacheRoot);
+        Mavenizer.setAccessIndex(caches.access());
+        ClassDataSharing.init(new File(jdkCacheRoot, "cds"));
+        DecompileHeap.init(new File(cacheRoot, "heap"));
+        var budget = options.has(memoryBudgetO) ? CacheCleaner.parseSize(options.valueOf(memoryBudgetO)) : MemoryBudget.physicalMemory();
+        MemoryBudget.init(new File(cacheRoot, "memory"), budget, options.has(memoryBudgetO));
+        var task = new MCPTask(outputDir, caches, artifact, pipeline, mappings);
+        String ret;
+        try {
+            ret = task.classes();
+            if(mappings != null)
+                task.mappings();
+            if (!disableDecompile)
+                ret = task.decompile(ats, sas);
+        } finally {
+            caches.access().flush();
+        }
         task.data.put("output", ret);
 
         try {
@@ -323,7 +346,7 @@ class MCPTask {
         if (target.getAbsoluteFile().equals(source.getAbsoluteFile()))
             return relative;
 
-        var cache = HashStore.fromFile(target)
+        var cache = new TrackedHashStore(target, HashStore::fromFile)
             .add("source", source);
         if (Mavenizer.checkCache(target, cache))
             return relative;
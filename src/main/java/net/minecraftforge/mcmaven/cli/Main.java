@@ -6,15 +6,19 @@ package net.minecraftforge.mcmaven.cli;
 
 import joptsimple.OptionParser;
 import joptsimple.OptionSpecBuilder;
+import net.minecraftforge.mcmaven.impl.util.Metrics;
 import net.minecraftforge.util.logging.Logger;
 
 import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
 
+import java.io.File;
 import java.time.Duration;
 import java.util.ArrayList;
 
 public class Main {
     private static final String DISPLAY_NAME = "Minecraft Mavenizer";
+    private static File metricsOut = null;
+
     public static void main(String[] args) throws Exception {
         var start = System.nanoTime();
         try {
@@ -23,6 +27,8 @@ public class Main {
             run(args);
         } catch (Throwable e) {
             LOGGER.release();
+            if (metricsOut != null)
+                Metrics.write(metricsOut);
             throw e;
         }
 
@@ -34,6 +40,10 @@ public class Main {
             LOGGER.getInfo().print("Minecraft Maven has finished");
         }
         LOGGER.getInfo().printf(", took %d:%02d.%03d%n", time.toMinutesPart(), time.toSecondsPart(), time.toMillisPart());
+
+        Metrics.summary();
+        if (metricsOut != null)
+            Metrics.write(metricsOut);
     }
 
     private static void run(String[] args) throws Exception {
@@ -48,6 +58,10 @@ public class Main {
 
         var debugO = parser.accepts("debug", "Sets the log level to DEBUG");
 
+        var metricsO = parser.accepts("metrics-out",
+            "Writes run metrics to this file in the Prometheus text format, for the node exporter textfile collector")
+            .withRequiredArg().ofType(File.class);
+
         for (var task : tasks)
             opts.add(parser.accepts(task.key, task.description));
 
@@ -65,6 +79,9 @@ public class Main {
         else
             LOGGER.setEnabled(Logger.Level.INFO);
 
+        if (options.has(metricsO))
+            metricsOut = options.valueOf(metricsO);
+
         for (var task : tasks) {
             if (options.has(task.key)) {
                 task.callback.run(args, false);
@@ -5,9 +5,17 @@
 package net.minecraftforge.mcmaven.cli;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Predicate;
 
 import org.jetbrains.annotations.Nullable;
 
@@ -15,16 +23,30 @@ import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
 import joptsimple.OptionSpecBuilder;
+import net.minecraftforge.mcmaven.impl.MavenServer;
 import net.minecraftforge.mcmaven.impl.Mavenizer;
 import net.minecraftforge.mcmaven.impl.MinecraftMaven;
 import net.minecraftforge.mcmaven.impl.cache.Cache;
+import net.minecraftforge.mcmaven.impl.cache.CacheCleaner;
+import net.minecraftforge.mcmaven.impl.cache.RemoteCache;
+import net.minecraftforge.mcmaven.impl.cache.RunFingerprint;
 import net.minecraftforge.mcmaven.impl.mappings.Mappings;
+import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCPConfigRepo;
 import net.minecraftforge.mcmaven.impl.util.Artifact;
+import net.minecraftforge.mcmaven.impl.util.ClassDataSharing;
+import net.minecraftforge.mcmaven.impl.util.DecompileHeap;
 import net.minecraftforge.mcmaven.impl.util.Constants;
+import net.minecraftforge.mcmaven.impl.util.FileLocks;
+import net.minecraftforge.mcmaven.impl.util.MemoryBudget;
+import net.minecraftforge.mcmaven.impl.util.Trace;
+import net.minecraftforge.mcmaven.impl.util.WorkerPool;
 
 import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
 
 class MavenTask {
+    // Shorthands for the sides of Minecraft, which share most of their work so may be used together
+    private static final Set<String> SIDES = Set.of("mc", "joined", "client", "server");
+
     static OptionParser run(String[] args, boolean getParser) throws Exception {
         var parser = new OptionParser();
         parser.allowsUnrecognizedOptions();
@@ -57,9 +79,14 @@ class MavenTask {
 
         // artifact to generate
         var artifactO = parser.accepts("artifact",
-            "The artifact to attempt to generate, see the code for supported formats")
+            "The artifact to attempt to generate, see the code for supported formats. May be repeated to generate several artifacts at once")
             .withRequiredArg().ofType(String.class).defaultsTo(Constants.FORGE_ARTIFACT);
 
+        // file listing artifacts to generate
+        var artifactsO = parser.accepts("artifacts",
+            "File listing the artifacts to generate, one per line, in addition to any --artifact. Blank lines and lines starting with # are ignored")
+            .withRequiredArg().ofType(File.class);
+
         // root output directory
         var outputO = parser.accepts("output",
             "Root directory to generate the maven repository")
@@ -89,6 +116,44 @@ class MavenTask {
             "Overrides the -Xmx argument passed into the decompile sub-processes")
             .withRequiredArg();
 
+        // limit how many memory hungry steps run at once
+        var memoryBudgetO = parser.accepts("memory-budget",
+            "Total memory the decompile, recompile and other heavy steps may use at once, shared with other processes using the same cache, such as 16G. Defaults to the last budget given for this cache, or the physical memory of this machine")
+            .withRequiredArg().ofType(String.class);
+
+        // hardlink identical outputs to a single copy in the cache
+        var dedupeO = parser.accepts("dedupe",
+            "Stores task outputs in a content addressed blob store in the cache, and hardlinks identical files to a single copy");
+
+        // evict old cache entries once finished
+        var cacheBudgetO = parser.accepts("cache-budget",
+            "Once finished, evicts the least recently used cache entries until the cache is under this size, such as 20G. Nothing used by this run is evicted")
+            .withRequiredArg().ofType(String.class);
+
+        // reuse tool JVMs
+        var workerPoolO = parser.accepts("worker-pool",
+            "Runs tools in long lived JVMs instead of starting a new one for every call. The value is how many jobs a JVM runs before it is replaced")
+            .withOptionalArg().ofType(Integer.class).defaultsTo(50);
+
+        // chrome trace of the run
+        var traceO = parser.accepts("trace",
+            "Writes a Chrome trace event file of every task, download and child process, which can be opened in chrome://tracing or ui.perfetto.dev")
+            .withOptionalArg().ofType(File.class).defaultsTo(new File("trace.json"));
+
+        // shared cache of task outputs
+        var remoteCacheO = parser.accepts("remote-cache",
+            "URL of a remote build cache to download task outputs from, instead of building them locally")
+            .withRequiredArg().ofType(String.class);
+
+        var remoteCachePushO = parser.accepts("remote-cache-push",
+            "Uploads task outputs that were built locally to the --remote-cache")
+            .availableIf(remoteCacheO);
+
+        // report why each task had to run
+        var explainO = parser.accepts("explain",
+            "Writes a report of every cache miss, the input that caused it, and the tasks that re-ran because of it")
+            .withOptionalArg().ofType(File.class).defaultsTo(new File("explain.json"));
+
         var mappingsO = parser.accepts("mappings",
             "Mappings to use for this artifact. Formatted as channel:version")
             .withRequiredArg().ofType(String.class);
@@ -119,8 +184,20 @@ class MavenTask {
             "A Facade Config, which allows injecting interfaces to the built artifacts.")
             .withRequiredArg().ofType(File.class);
 
+        // generate artifacts when they are requested
+        var serveO = parser.accepts("serve",
+            "Instead of generating an artifact, runs a maven repository on this port that generates artifacts as they are requested")
+            .withOptionalArg().ofType(Integer.class).defaultsTo(8080);
+
+        // only write some of the files
+        var onlyO = parser.accepts("only",
+            "Only generates these kinds of file, and only runs the tasks needed for them. Comma separated list of: " + String.join(", ", MinecraftMaven.KINDS))
+            .availableUnless(serveO)
+            .withRequiredArg().ofType(String.class).withValuesSeparatedBy(',');
+
         var outputJsonO = parser.accepts("output-json",
-            "File to write extended output data to. Not compatible with bulk operations.")
+            "File to write extended output data to. Not compatible with bulk operations. If there are multiple artifacts, each one's data is written under its coordinates.")
+            .availableUnless(serveO)
             .withRequiredArg().ofType(File.class);
 
         var shorthandOptions = new HashMap<String, OptionSpecBuilder>();
@@ -140,12 +217,12 @@ class MavenTask {
             shorthandOptions.put(key, option);
 
             // do not allow with --artifact
-            option.availableUnless(artifactO);
+            option.availableUnless(artifactO, artifactsO);
         }
         shorthandOptions.forEach((key, option) -> {
-            // do not allow with other keys in the artifacts map
+            // do not allow with other keys in the artifacts map, except for the sides of Minecraft which can be built together
             for (var other : shorthandOptions.keySet()) {
-                if (!other.equals(key))
+                if (!other.equals(key) && !(SIDES.contains(key) && SIDES.contains(other)))
                     option.availableUnless(other);
             }
         });
@@ -170,7 +247,10 @@ class MavenTask {
             Mavenizer.setIgnoreCache();
         if (options.has(decompileMemoryO))
             Mavenizer.setDecompileMemory(options.valueOf(decompileMemoryO));
-
+        if (options.has(explainO))
+            Mavenizer.setExplain();
+        if (options.has(traceO))
+            Trace.enable();
         var output = options.valueOf(outputO);
         var cache = options.valueOf(cacheO);
         var jdkCache = !options.has(cacheO) || options.has(jdkCacheO)
@@ -180,19 +260,31 @@ class MavenTask {
             ? options.valueOf(localCacheO)
             : new File(cache, "local");
 
-        Artifact artifact = null;
+        if (options.has(remoteCacheO))
+            Mavenizer.setRemoteCache(new RemoteCache(options.valueOf(remoteCacheO), options.has(remoteCachePushO), cache, localCache, jdkCache));
+
+        // Sorted so that the same sides are always built in the same order
+        var shorthands = new TreeSet<String>();
         for (var entry : artifacts.entrySet()) {
-            if (options.has(entry.getKey())) {
-                artifact = Artifact.from(entry.getValue());
-                break;
-            }
+            if (options.has(entry.getKey()))
+                shorthands.add(entry.getValue());
         }
 
-        if (artifact == null)
-            artifact = Artifact.from(options.valueOf(artifactO));
-
-        if (artifact.getVersion() == null)
-            artifact = artifact.withVersion(options.valueOf(versionO));
+        var selected = new ArrayList<String>(shorthands);
+        if (options.has(artifactO))
+            selected.addAll(options.valuesOf(artifactO));
+        if (options.has(artifactsO))
+            selected.addAll(readArtifacts(options.valueOf(artifactsO)));
+        if (selected.isEmpty())
+            selected.add(options.valueOf(artifactO));
+
+        var targets = new ArrayList<Artifact>(selected.size());
+        for (var value : selected) {
+            var target = Artifact.from(value);
+            if (target.getVersion() == null)
+                target = target.withVersion(options.valueOf(versionO));
+            targets.add(target);
+        }
 
         var mappings = getMappings(options, mappingsO, parchmentO);
 
@@ -202,10 +294,46 @@ class MavenTask {
             foreignRepositories.put(split[0], split[1]);
         }
 
+        // Repeating the exact same command is common, such as IDE syncs, so skip everything if nothing has changed
+        var bulk = false;
+        for (var target : targets) {
+            var version = target.getVersion();
+            bulk |= version == null || "all".equals(version) || version.startsWith("[") || version.startsWith("(");
+        }
+        RunFingerprint fingerprint = null;
+        if (!bulk && !options.has(serveO) && !Mavenizer.ignoreCache() && !Mavenizer.isExplaining()) {
+            var inputs = new ArrayList<File>();
+            inputs.addAll(options.valuesOf(accessTransformerO));
+            inputs.addAll(options.valuesOf(facadeConfigO));
+            inputs.addAll(options.valuesOf(artifactsO));
+            fingerprint = RunFingerprint.of(cache, args, inputs);
+        }
+
+        if (fingerprint != null) {
+            if (fingerprint.isUpToDate())
+                return parser;
+            fingerprint.invalidate();
+            Mavenizer.setFingerprint(fingerprint);
+        }
+
+        var caches = new Cache(cache, localCache, jdkCache, foreignRepositories);
+        FileLocks.init(cache);
+        Mavenizer.setAccessIndex(caches.access());
+        ClassDataSharing.init(new File(jdkCache, "cds"));
+        DecompileHeap.init(new File(cache, "heap"));
+        var budget = options.has(memoryBudgetO) ? CacheCleaner.parseSize(options.valueOf(memoryBudgetO)) : MemoryBudget.physicalMemory();
+        MemoryBudget.init(new File(cache, "memory"), budget, options.has(memoryBudgetO));
+        if (options.has(workerPoolO))
+            WorkerPool.enable(options.valueOf(workerPoolO));
+        if (options.has(dedupeO)) {
+            caches.blobs().manage(output);
+            Mavenizer.setBlobStore(caches.blobs());
+        }
+
         var mcmaven = new MinecraftMaven(
             output,
             options.has(dependenciesOnlyO),
-            new Cache(cache, localCache, jdkCache, foreignRepositories),
+            caches,
             mappings,
             foreignRepositories,
             options.has(globalAuxiliaryVariantsO),
@@ -215,11 +343,58 @@ class MavenTask {
             new ArrayList<>(options.valuesOf(facadeConfigO)),
             options.valueOf(outputJsonO)
         );
-        mcmaven.run(artifact);
+
+        if (options.has(serveO)) {
+            var server = new MavenServer(mcmaven, new MCPConfigRepo(caches, options.has(dependenciesOnlyO)), options.valueOf(serveO));
+            server.start();
+
+            // The server only stops when it is killed, so that is when everything else a run ends with happens
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop();
+                caches.access().flush();
+                if (options.has(explainO))
+                    Mavenizer.writeExplanation(options.valueOf(explainO));
+                if (options.has(traceO))
+                    Trace.write(options.valueOf(traceO));
+            }, "Maven Server Shutdown"));
+
+            LOGGER.info("  URL:                http://localhost:" + server.port() + '/');
+            LOGGER.release();
+
+            new CountDownLatch(1).await();
+            return parser;
+        }
+
+        var selected = options.has(onlyO) ? MinecraftMaven.only(options.valuesOf(onlyO)) : (Predicate<Artifact>) _ -> true;
+        try {
+            mcmaven.run(new MCPConfigRepo(caches, options.has(dependenciesOnlyO)), targets, selected);
+        } finally {
+            caches.access().flush();
+            if (options.has(explainO))
+                Mavenizer.writeExplanation(options.valueOf(explainO));
+            if (options.has(traceO))
+                Trace.write(options.valueOf(traceO));
+        }
+
+        if (fingerprint != null)
+            fingerprint.save();
+
+        if (options.has(cacheBudgetO))
+            new CacheCleaner(caches).clean(CacheCleaner.parseSize(options.valueOf(cacheBudgetO)), caches.access().accessed(), false);
 
         return parser;
     }
 
+    private static List<String> readArtifacts(File file) throws IOException {
+        var ret = new ArrayList<String>();
+        for (var line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#"))
+                ret.add(line);
+        }
+        return ret;
+    }
+
     private static @Nullable Mappings getMappings(OptionSet options, OptionSpec<String> mappingsO, OptionSpec<String> parchmentO) {
         if (options.has(parchmentO))
             return Mappings.of("parchment", options.valueOf(parchmentO));
@@ -21,6 +21,8 @@ import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCPConfigRepo;
 import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MinecraftTasks;
 import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MinecraftTasks.ArtifactFile;
 import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MinecraftTasks.MCFile;
+import net.minecraftforge.mcmaven.impl.util.FileLocks;
+import net.minecraftforge.mcmaven.impl.util.TrackedHashStore;
 import net.minecraftforge.util.data.json.JsonData;
 import net.minecraftforge.util.file.FileUtils;
 import net.minecraftforge.util.hash.HashStore;
@@ -122,6 +124,7 @@ class MinecraftFilesTask {
         this.output = output;
         this.outputDir = outputDir;
         this.version = version;
+        FileLocks.init(cacheRoot);
         repo = new MCPConfigRepo(new Cache(cacheRoot, new File(cacheRoot, "jdks")), false);
         tasks = repo.getMCTasks(version);
     }
@@ -129,7 +132,7 @@ class MinecraftFilesTask {
     private void run() {
         var data = new LinkedHashMap<String, String>();
         var versionJson = tasks.versionJson.execute();
-        var json = JsonData.minecraftVersion(versionJson);
+        var json = tasks.getVersionJson();
         var server = tasks.versionFile(MCFile.SERVER_JAR).execute();
         var serverExtracted = tasks.extractServer().execute();
         var root = outputDir != null ? new File(outputDir, version) : tasks.versionCache();
@@ -184,7 +187,7 @@ class MinecraftFilesTask {
         if (target.getAbsoluteFile().equals(source.getAbsoluteFile()))
             return relative;
 
-        var cache = HashStore.fromFile(target)
+        var cache = new TrackedHashStore(target, HashStore::fromFile)
             .add("source", source);
         if (Mavenizer.checkCache(target, cache))
             return relative;
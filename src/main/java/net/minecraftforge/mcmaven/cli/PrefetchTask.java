@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.cli;
+
+import java.io.File;
+import java.util.HashMap;
+
+import joptsimple.OptionParser;
+import net.minecraftforge.mcmaven.impl.Prefetch;
+import net.minecraftforge.mcmaven.impl.cache.Cache;
+import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCPConfigRepo;
+import net.minecraftforge.mcmaven.impl.util.Artifact;
+import net.minecraftforge.mcmaven.impl.util.Constants;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+/**
+ * Warms the caches for an artifact by downloading everything it will need, concurrently.
+ * No processing is done, so this can be run ahead of time or on a machine that will later run with --offline.
+ */
+class PrefetchTask {
+    static OptionParser run(String[] args, boolean getParser) throws Exception {
+        var parser = new OptionParser();
+        parser.allowsUnrecognizedOptions();
+
+        //@formatter:off
+        // help message
+        var helpO = parser.accepts("help",
+            "Displays this help message and exits")
+            .forHelp();
+
+        var cacheO = parser.accepts("cache",
+            "Directory to store data needed for this program")
+            .withRequiredArg().ofType(File.class).defaultsTo(new File("cache"));
+
+        var jdkCacheO = parser.accepts("jdk-cache",
+            "Directory to store jdks downloaded from the disoco api")
+            .withRequiredArg().ofType(File.class).defaultsTo(new File("cache/jdks"));
+
+        var artifactO = parser.accepts("artifact",
+            "The artifact to download the inputs for")
+            .withRequiredArg().ofType(String.class).defaultsTo(Constants.FORGE_ARTIFACT);
+
+        var versionO = parser.accepts("version",
+            "The specific artifact version, ranges are not supported")
+            .withRequiredArg().ofType(String.class);
+
+        var foreignRepositoryO = parser.accepts("repository",
+            "EXPERIMENTAL: URL of a foreign maven repository to use for dependencies. The format is \"name,url\". The name must not include any commas.")
+            .withRequiredArg().ofType(String.class);
+
+        var threadsO = parser.accepts("threads",
+            "Number of concurrent downloads")
+            .withRequiredArg().ofType(Integer.class).defaultsTo(Prefetch.DEFAULT_THREADS);
+
+        var noJdksO = parser.accepts("no-jdks",
+            "Do not provision the JDKs needed to run the tools");
+        //@formatter:on
+
+        if (getParser)
+            return parser;
+
+        var options = parser.parse(args);
+        if (options.has(helpO)) {
+            parser.printHelpOn(LOGGER.getInfo());
+            LOGGER.release();
+            return parser;
+        }
+
+        var cache = options.valueOf(cacheO);
+        var jdkCache = !options.has(cacheO) || options.has(jdkCacheO)
+            ? options.valueOf(jdkCacheO)
+            : new File(cache, "jdks");
+
+        var artifact = Artifact.from(options.valueOf(artifactO));
+        if (artifact.getVersion() == null)
+            artifact = artifact.withVersion(options.valueOf(versionO));
+
+        var foreignRepositories = new HashMap<String, String>();
+        for (var s : options.valuesOf(foreignRepositoryO)) {
+            var split = s.split(",", 2);
+            foreignRepositories.put(split[0], split[1]);
+        }
+
+        LOGGER.info("  Artifact:  " + artifact);
+        LOGGER.info("  Cache:     " + cache.getAbsolutePath());
+        LOGGER.info("  JDK Cache: " + jdkCache.getAbsolutePath());
+        LOGGER.info();
+
+        var caches = new Cache(cache, new File(cache, "local"), jdkCache, foreignRepositories);
+        new Prefetch(caches, new MCPConfigRepo(caches, false))
+            .artifact(artifact)
+            .tool(Constants.ACCESS_TRANSFORMER, Constants.ACCESS_TRANSFORMER_JAVA_VERSION)
+            .tool(Constants.STUBIFY, Constants.STUBIFY_JAVA_VERSION)
+            .tool(Constants.FACADE, Constants.FACADE_JAVA_VERSION)
+            .run(options.valueOf(threadsO), !options.has(noJdksO));
+
+        return parser;
+    }
+}
@@ -11,7 +11,10 @@ import joptsimple.OptionParser;
 enum Tasks {
     MAVEN(MavenTask::run, "Generates a maven repository for Minecraft Artifacts"),
     MCP(MCPTask::run, "Generates a 'clean' sources jar from a MCPConfig pipeline"),
-    MINECRAFT_FILES(MinecraftFilesTask::run, "Gathers vanilla files")
+    MINECRAFT_FILES(MinecraftFilesTask::run, "Gathers vanilla files"),
+    PREFETCH(PrefetchTask::run, "Downloads every remote input for an artifact, without processing anything"),
+    GC(GCTask::run, "Evicts the least recently used cache entries until the cache fits in --max-size"),
+    CACHE_SERVER(CacheServerTask::run, "Runs a simple remote build cache backed by a directory, for use with --remote-cache")
     ;
 
     interface Callback {
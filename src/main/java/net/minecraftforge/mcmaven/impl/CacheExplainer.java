@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.minecraftforge.mcmaven.impl.util.TrackedHashStore;
+import net.minecraftforge.mcmaven.impl.util.Util;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+/**
+ * Records why each cache miss happened, for {@code --explain}.
+ * <p>
+ * For every miss we note the first input that differs from what was saved last time. The inputs are the keys given
+ * to the {@link TrackedHashStore}, so a key that is a path or an artifact coordinate is reported as is. Misses are
+ * keyed by their output, as the same task name is used by every side and version. An output whose inputs include
+ * another output that missed is linked to it, so the report shows the root causes and everything they dragged along.
+ */
+final class CacheExplainer {
+    private final Map<String, Miss> misses = new LinkedHashMap<>();
+    private final Map<String, Set<String>> deps = new LinkedHashMap<>();
+
+    synchronized void miss(@Nullable String task, Collection<File> inputs, File output, TrackedHashStore cache, boolean ignoreCache) {
+        var miss = new Miss();
+        miss.output = output.getAbsolutePath();
+        miss.task = task == null ? output.getName() : task;
+
+        var paths = this.deps.computeIfAbsent(miss.output, _ -> new LinkedHashSet<>());
+        for (var input : inputs) {
+            if (input != null)
+                paths.add(input.getAbsolutePath());
+        }
+
+        if (ignoreCache) {
+            miss.reason = "--ignore-cache";
+        } else if (!output.exists()) {
+            miss.reason = "Output does not exist";
+        } else {
+            var keys = cache.inputs().keySet();
+            var old = parse(cache.dumpOld(), keys);
+            var current = parse(cache.dump(), keys);
+            for (var entry : current.entrySet()) {
+                var previous = old.get(entry.getKey());
+                if (!entry.getValue().equals(previous)) {
+                    miss.reason = previous == null ? "Input added" : "Input changed";
+                    miss.key = entry.getKey();
+                    miss.input = cache.inputs().get(entry.getKey());
+                    miss.oldValue = previous;
+                    miss.newValue = entry.getValue();
+                    break;
+                }
+            }
+
+            if (miss.reason == null) {
+                for (var entry : old.entrySet()) {
+                    if (!current.containsKey(entry.getKey())) {
+                        miss.reason = "Input removed";
+                        miss.key = entry.getKey();
+                        miss.oldValue = entry.getValue();
+                        break;
+                    }
+                }
+            }
+
+            if (miss.reason == null)
+                miss.reason = old.isEmpty() ? "No previous cache data" : "Unknown";
+        }
+
+        // The same output can be checked more than once, the first miss is the one that matters
+        this.misses.putIfAbsent(miss.output, miss);
+    }
+
+    /**
+     * Splits a HashStore dump, one input per line, into the value of each key we know was added. The keys can
+     * contain anything, so the longest key that the line starts with wins. Lines that don't match any key, such as
+     * inputs that have since been removed, are kept whole as their own key.
+     */
+    private static Map<String, String> parse(String dump, Collection<String> keys) {
+        var ret = new LinkedHashMap<String, String>();
+        for (var line : dump.split("\n")) {
+            line = line.strip();
+            if (line.isEmpty())
+                continue;
+
+            String match = null;
+            for (var key : keys) {
+                if (line.length() > key.length() && line.startsWith(key) && isSeparator(line.charAt(key.length())) && (match == null || key.length() > match.length()))
+                    match = key;
+            }
+
+            if (match == null)
+                ret.put(line, "");
+            else
+                ret.put(match, line.substring(match.length() + 1).strip());
+        }
+        return ret;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ':' || c == '=' || Character.isWhitespace(c);
+    }
+
+    synchronized void write(File file) {
+        var ran = this.misses.keySet();
+
+        var report = new Report();
+        for (var miss : this.misses.values()) {
+            // A miss is caused by an input if that input also had to be made
+            for (var dep : this.deps.getOrDefault(miss.output, Set.of())) {
+                if (ran.contains(dep))
+                    miss.causedBy.add(dep);
+            }
+            miss.downstream.addAll(downstream(miss.output, ran));
+
+            if (miss.causedBy.isEmpty())
+                report.rootCauses.add(miss);
+            report.misses.add(miss);
+        }
+
+        LOGGER.info("Cache misses: " + this.misses.size() + ", root causes: " + report.rootCauses.size());
+        LOGGER.push();
+        for (var miss : report.rootCauses) {
+            var detail = miss.key == null ? miss.reason : miss.reason + ": " + miss.key;
+            LOGGER.info(miss.task + ' ' + miss.output + " (" + detail + ") -> " + miss.downstream.size() + " downstream outputs");
+        }
+        LOGGER.pop();
+
+        try {
+            Util.publish(file, tmp -> Files.writeString(tmp.toPath(), Util.GSON.toJson(report), StandardCharsets.UTF_8));
+            LOGGER.info("Wrote cache miss report to " + file.getAbsolutePath());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write cache miss report: " + e.getMessage());
+        }
+    }
+
+    private Set<String> downstream(String output, Set<String> ran) {
+        var ret = new TreeSet<String>();
+        var queue = new ArrayDeque<String>();
+        queue.add(output);
+        while (!queue.isEmpty()) {
+            var current = queue.poll();
+            for (var entry : this.deps.entrySet()) {
+                var name = entry.getKey();
+                if (ran.contains(name) && entry.getValue().contains(current) && ret.add(name))
+                    queue.add(name);
+            }
+        }
+        ret.remove(output);
+        return ret;
+    }
+
+    private static final class Report {
+        final List<Miss> rootCauses = new ArrayList<>();
+        final List<Miss> misses = new ArrayList<>();
+    }
+
+    private static final class Miss {
+        String output;
+        String task;
+        String reason;
+        @Nullable String key;
+        @Nullable String input;
+        @Nullable String oldValue;
+        @Nullable String newValue;
+        final Set<String> causedBy = new TreeSet<>();
+        final Set<String> downstream = new TreeSet<>();
+    }
+}
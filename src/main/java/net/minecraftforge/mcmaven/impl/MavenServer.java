@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCPConfigRepo;
+import net.minecraftforge.mcmaven.impl.util.Artifact;
+import net.minecraftforge.mcmaven.impl.util.Constants;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+/**
+ * A maven repository that generates artifacts when they are first requested, instead of ahead of time.
+ * <p>
+ * Requests under {@code net/minecraft/} and {@code net/minecraftforge/forge/} are parsed into coordinates, and only
+ * the files behind the requested one are built into the output directory, which is then served like a static
+ * repository. A Gradle module needs every variant, so asking for one builds the whole version. Concurrent requests for
+ * the same file wait on the same build, and files built by this server are served straight from disk afterwards.
+ * <p>
+ * Every request is planned in the same repo, so tasks such as downloading the game or its mappings only run once for
+ * the life of the server. Planning isn't thread safe, so different files are built one at a time. Files that are
+ * already in the output directory from an earlier run don't wait for that, they are served as they are and brought up
+ * to date in the background.
+ */
+public final class MavenServer {
+    private static final List<String> CHECKSUMS = List.of(".md5", ".sha1", ".sha256", ".sha512");
+
+    private final MinecraftMaven mcmaven;
+    private final MCPConfigRepo mcprepo;
+    private final HttpServer server;
+    private final ExecutorService builder = Executors.newVirtualThreadPerTaskExecutor();
+    private final Object lock = new Object();
+    private final Map<String, CompletableFuture<Void>> building = new ConcurrentHashMap<>();
+    private final Set<String> built = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param mcmaven The settings to generate artifacts with, its output directory is where they are served from
+     * @param mcprepo The repo to plan every request in
+     * @param port    The port to listen on, or 0 to pick a free one
+     */
+    public MavenServer(MinecraftMaven mcmaven, MCPConfigRepo mcprepo, int port) throws IOException {
+        this.mcmaven = mcmaven;
+        this.mcprepo = mcprepo;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public int port() {
+        return this.server.getAddress().getPort();
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    public void stop() {
+        this.server.stop(0);
+        this.builder.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            var method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            var path = exchange.getRequestURI().getPath();
+            File file;
+            try {
+                file = this.resolve(path);
+            } catch (Throwable t) {
+                LOGGER.error("Failed to generate " + path + ": " + t);
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+
+            if (file == null || !file.isFile()) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            var head = "HEAD".equals(method);
+            exchange.sendResponseHeaders(200, head ? -1 : file.length());
+            if (!head) {
+                try (var os = exchange.getResponseBody()) {
+                    Files.copy(file.toPath(), os);
+                }
+            }
+        }
+    }
+
+    /** @return The file in the output directory for the request, after building it if needed, or {@code null} if it isn't one we serve */
+    private @Nullable File resolve(String path) {
+        var relative = path.startsWith("/") ? path.substring(1) : path;
+        var segments = relative.split("/");
+        for (var segment : segments) {
+            if (segment.isEmpty() || ".".equals(segment) || "..".equals(segment))
+                return null;
+        }
+
+        var target = new File(this.mcmaven.output(), relative);
+        int count = segments.length;
+        if (count < 4)
+            return target;
+
+        var group = String.join(".", Arrays.copyOf(segments, count - 3));
+        var name = segments[count - 3];
+        var version = segments[count - 2];
+        var filename = stripChecksum(segments[count - 1]);
+
+        var isMinecraft = Constants.MC_GROUP.equals(group);
+        var isForge = Constants.FORGE_GROUP.equals(group) && Constants.FORGE_NAME.equals(name);
+        if (!isMinecraft && !isForge)
+            return null;
+
+        // Anything that isn't a file of a specific version, such as maven-metadata.xml, is only served if it already exists
+        if (!filename.startsWith(name + '-' + version + '.') && !filename.startsWith(name + '-' + version + '-'))
+            return target;
+
+        // Ranges and bulk versions would build far more than was asked for
+        if ("all".equals(version) || version.startsWith("[") || version.startsWith("("))
+            return null;
+
+        var folder = String.join("/", Arrays.copyOf(segments, count - 1));
+        this.build(Artifact.from(group, name, version), folder, filename, target);
+        return target;
+    }
+
+    private static String stripChecksum(String filename) {
+        for (var checksum : CHECKSUMS) {
+            if (filename.endsWith(checksum))
+                return filename.substring(0, filename.length() - checksum.length());
+        }
+        return filename;
+    }
+
+    private void build(Artifact artifact, String folder, String filename, File target) {
+        var key = folder + '/' + filename;
+        if (this.built.contains(key))
+            return;
+
+        // Made by an earlier run, so don't wait behind other builds to serve it
+        var existing = target.isFile();
+        var future = this.building.computeIfAbsent(key, _ -> {
+            var ret = CompletableFuture.runAsync(() -> this.buildImpl(artifact, folder, filename), this.builder);
+            // Nobody waits on a file that already exists, so say if bringing it up to date failed
+            if (existing) {
+                ret.whenComplete((_, e) -> {
+                    if (e != null)
+                        LOGGER.error("Failed to update " + key + ": " + (e instanceof CompletionException ? e.getCause() : e));
+                });
+            }
+            return ret;
+        });
+        future.whenComplete((_, _) -> this.building.remove(key, future));
+
+        if (existing)
+            return;
+
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private void buildImpl(Artifact artifact, String folder, String filename) {
+        // The module lists every variant, so they all have to exist
+        var all = filename.endsWith(".module");
+        Predicate<Artifact> selected = all ? _ -> true : output -> filename.equals(output.getFilename());
+
+        LOGGER.info("Request: " + folder + '/' + filename);
+        synchronized (this.lock) {
+            try {
+                this.mcmaven.run(this.mcprepo, List.of(artifact), selected);
+            } finally {
+                // The server runs until it is killed, so don't keep what it used to ourselves until then
+                Mavenizer.flushAccess();
+            }
+        }
+
+        if (!all) {
+            this.built.add(folder + '/' + filename);
+            return;
+        }
+
+        var files = new File(this.mcmaven.output(), folder).listFiles();
+        if (files != null) {
+            for (var file : files) {
+                if (file.isFile())
+                    this.built.add(folder + '/' + stripChecksum(file.getName()));
+            }
+        }
+    }
+}
@@ -5,12 +5,23 @@
 package net.minecraftforge.mcmaven.impl;
 
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 import org.jetbrains.annotations.Nullable;
 
-import net.minecraftforge.util.hash.HashStore;
+import net.minecraftforge.mcmaven.impl.cache.AccessIndex;
+import net.minecraftforge.mcmaven.impl.cache.BlobStore;
+import net.minecraftforge.mcmaven.impl.cache.RemoteCache;
+import net.minecraftforge.mcmaven.impl.cache.RunFingerprint;
+import net.minecraftforge.mcmaven.impl.util.FileLocks;
+import net.minecraftforge.mcmaven.impl.util.JfrEvents;
+import net.minecraftforge.mcmaven.impl.util.Metrics;
+import net.minecraftforge.mcmaven.impl.util.Task;
+import net.minecraftforge.mcmaven.impl.util.Trace;
+import net.minecraftforge.mcmaven.impl.util.TrackedHashStore;
 import net.minecraftforge.util.logging.Logger;
 
 public final class Mavenizer {
@@ -23,6 +34,13 @@ public final class Mavenizer {
     private static boolean cacheOnly = false;
     public static boolean cacheMiss = false;
     private static boolean ignoreCache = false;
+    private static @Nullable BlobStore blobs = null;
+    // Outputs this thread has written since the current task started, only those are new to the blob store
+    private static final ThreadLocal<Deque<File>> WRITTEN = ThreadLocal.withInitial(ArrayDeque::new);
+    private static @Nullable AccessIndex access = null;
+    private static @Nullable RemoteCache remote = null;
+    private static @Nullable RunFingerprint fingerprint = null;
+    private static @Nullable CacheExplainer explainer = null;
 
     public static boolean isOffline() {
         return offline || cacheOnly;
@@ -48,6 +66,92 @@ public final class Mavenizer {
         return ignoreCache;
     }
 
+    /** Enables deduplication of task outputs, see {@link BlobStore} */
+    public static void setBlobStore(BlobStore value) {
+        blobs = value;
+    }
+
+    /** Replaces the output with links into the blob store, if deduplication is enabled. */
+    public static void dedupe(File output) {
+        if (blobs != null)
+            blobs.store(output);
+    }
+
+    /** @return A marker for the outputs this thread has written, see {@link #dedupeWritten(int, boolean)} */
+    public static int markWritten() {
+        return WRITTEN.get().size();
+    }
+
+    /**
+     * Stores the outputs that missed the cache since the given marker. Outputs that were up to date were stored when
+     * they were written, so they aren't looked at again.
+     *
+     * @param mark    The value of {@link #markWritten()} from before the outputs were checked
+     * @param success If the outputs were written, a failed task's outputs are left alone
+     */
+    public static void dedupeWritten(int mark, boolean success) {
+        var written = WRITTEN.get();
+        while (written.size() > mark) {
+            var output = written.pop();
+            if (success)
+                dedupe(output);
+        }
+    }
+
+    /** Breaks any links from the output to the blob store, so it can be rewritten in place. */
+    public static void detach(File output) {
+        if (blobs != null)
+            blobs.detach(output);
+    }
+
+    /** Enables tracking of which cache entries are used, see {@link AccessIndex} */
+    public static void setAccessIndex(AccessIndex value) {
+        access = value;
+    }
+
+    /** Writes the cache entries used so far to the access index, for runs that don't end on their own. */
+    public static void flushAccess() {
+        if (access != null)
+            access.flush();
+    }
+
+    /** Records that a cache entry was used by this run, so it isn't evicted. */
+    public static void accessed(File file) {
+        if (access != null)
+            access.record(file);
+    }
+
+    /** Enables fetching task outputs from a shared cache, see {@link RemoteCache} */
+    public static void setRemoteCache(RemoteCache value) {
+        remote = value;
+    }
+
+    /** Enables recording of the files this run produces, see {@link RunFingerprint} */
+    public static void setFingerprint(RunFingerprint value) {
+        fingerprint = value;
+    }
+
+    /** Records a file this run produced for the user, such as an artifact in the output repository. */
+    public static void produced(File file) {
+        if (fingerprint != null)
+            fingerprint.output(file);
+    }
+
+    /** Records the reason for every cache miss, see {@link #writeExplanation(File)} */
+    public static void setExplain() {
+        explainer = new CacheExplainer();
+    }
+
+    public static boolean isExplaining() {
+        return explainer != null;
+    }
+
+    /** Writes the cache miss report, if enabled by {@link #setExplain()}. */
+    public static void writeExplanation(File file) {
+        if (explainer != null)
+            explainer.write(file);
+    }
+
     public static void assertOnline() {
         if (offline)
             throw new IllegalArgumentException("Offline mode is enabled! Please run without --offline");
@@ -80,9 +184,58 @@ public final class Mavenizer {
         }
     }
 
-    public static boolean checkCache(File output, HashStore cache) {
-        if (!ignoreCache && output.exists() && cache.isSame())
+    public static boolean checkCache(File output, TrackedHashStore cache) {
+        var event = new JfrEvents.CacheCheck();
+        event.begin();
+        var hit = checkCacheImpl(output, cache);
+        var task = Task.current();
+        Metrics.count(Metrics.CACHE_CHECKS, 1, "type", task == null ? "other" : Metrics.taskType(task.name()), "result", hit ? "hit" : "miss");
+        event.end();
+        if (event.shouldCommit()) {
+            event.output = output.getAbsolutePath();
+            event.hit = hit;
+            event.commit();
+        }
+        return hit;
+    }
+
+    private static boolean checkCacheImpl(File output, TrackedHashStore cache) {
+        accessed(output);
+        // Without a lock this is only a hint. Forked tools write their outputs in place, so another process may be
+        // halfway through one. It holds the output's lock until the sidecar is published, so only trust a hit once we
+        // hold the lock, and read the sidecar again in case it changed while we waited.
+        if (!ignoreCache && output.exists() && cache.isSame()) {
+            // Keep it from being evicted or rebuilt by another process until the task finishes
+            var mark = FileLocks.mark();
+            FileLocks.readOutput(output);
+            cache.reload();
+            if (output.exists() && cache.isSame()) {
+                Trace.annotate("cache", "hit");
+                return true;
+            }
+            FileLocks.release(mark);
+        }
+
+        // Other processes may share this cache, so lock the output until the task finishes, and check again in case
+        // someone else produced it while we waited.
+        FileLocks.lockOutput(output);
+        cache.reload();
+        if (!ignoreCache && output.exists() && cache.isSame()) {
+            Trace.annotate("cache", "hit");
+            return true;
+        }
+
+        if (blobs != null)
+            WRITTEN.get().push(output);
+
+        if (remote != null && !ignoreCache && !isOffline() && remote.fetch(output, cache)) {
+            Trace.annotate("cache", "remote");
+            cache.save();
             return true;
+        }
+
+        Trace.annotate("cache", "miss");
+
         if (LOGGER.isEnabled(Logger.Level.DEBUG)) {
             LOGGER.debug("Cache miss: " + output.getAbsolutePath());
             LOGGER.push();
@@ -91,7 +244,10 @@ public final class Mavenizer {
                 debug("New:", cache.dump());
             LOGGER.pop();
         }
+        if (explainer != null)
+            explainer.miss(Task.current(), Task.currentInputs(), output, cache, ignoreCache);
         Mavenizer.assertNotCacheOnly();
+        detach(output);
         return false;
     }
 
@@ -122,7 +278,7 @@ public final class Mavenizer {
         return found;
     }
 
-    public static List<String> fillDecompileJvmArgs(List<String> args, boolean firstRun, boolean useDefaultGuess) {
+    public static List<String> fillDecompileJvmArgs(List<String> args, boolean firstRun, @Nullable List<String> estimate) {
         if (!firstRun)
             return args; // Use the unmodifed args from MCPConfig
 
@@ -139,11 +295,16 @@ public final class Mavenizer {
             // Best we can do is warn about memory arguments if we see them.
             warnAboutMemory();
 
+            // Sized from the input jar and previous runs, see DecompileHeap
+            if (estimate != null) {
+                ret.addAll(estimate);
+                return ret;
+            }
+
             // Lets try and pick a 'sensible' default minimum size, this number is arbitrary, and causes issues with systems with low amounts of ram
             // I really hate just setting an arbitrary lower limit
             // If someone has a better idea how to deal with this feel free to submit it.
-            if (useDefaultGuess)
-                ret.add("-Xms4G");
+            ret.add("-Xms4G");
         }
         return ret;
     }
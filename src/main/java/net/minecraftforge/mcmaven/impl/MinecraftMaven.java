@@ -5,18 +5,18 @@
 package net.minecraftforge.mcmaven.impl;
 
 import net.minecraftforge.mcmaven.impl.cache.Cache;
+import net.minecraftforge.mcmaven.impl.cache.RemoteCache;
 import net.minecraftforge.mcmaven.impl.data.GradleModule;
+import net.minecraftforge.mcmaven.impl.data.GradleModuleWriter;
 import net.minecraftforge.mcmaven.impl.mappings.Mappings;
 import net.minecraftforge.mcmaven.impl.repo.Repo;
 import net.minecraftforge.mcmaven.impl.repo.Repo.PendingArtifact;
 import net.minecraftforge.mcmaven.impl.repo.forge.ForgeRepo;
-import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCP;
 import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCPConfigRepo;
-import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCPLegacy;
-import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MinecraftTasks;
 import net.minecraftforge.mcmaven.impl.util.Artifact;
 import net.minecraftforge.mcmaven.impl.util.ComparableVersion;
 import net.minecraftforge.mcmaven.impl.util.Constants;
+import net.minecraftforge.mcmaven.impl.util.FileLocks;
 import net.minecraftforge.mcmaven.impl.util.POMBuilder;
 import net.minecraftforge.mcmaven.impl.util.ProcessUtils;
 import net.minecraftforge.mcmaven.impl.util.StupidHacks;
@@ -24,41 +24,38 @@ import net.minecraftforge.mcmaven.impl.util.Task;
 import net.minecraftforge.mcmaven.impl.util.Util;
 import net.minecraftforge.srgutils.MinecraftVersion;
 import net.minecraftforge.util.data.json.JsonData;
-import net.minecraftforge.util.file.FileUtils;
 import net.minecraftforge.util.hash.HashUtils;
 import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
+import javax.xml.stream.XMLStreamException;
 
 import org.jetbrains.annotations.Nullable;
-import org.w3c.dom.Node;
-import org.xml.sax.SAXException;
 
 // TODO [MCMavenizer][Deobf] ADD DEOBF
 //  use single detached configuration to resolve individual configurations
@@ -104,29 +101,82 @@ public record MinecraftMaven(
     }
 
     public void run(Artifact artifact) {
-        var module = artifact.getGroup() + ':' + artifact.getName();
-        var version = artifact.getVersion();
-        LOGGER.info("Processing Minecraft dependency: %s:%s".formatted(module, version));
-        Map<String, Supplier<String>> outputJson = null;
+        run(List.of(artifact));
+    }
+
+    /**
+     * Generates several artifacts at once, such as the {@code client}, {@code server} and {@code mappings} of a Minecraft
+     * version along with a Forge version for it. They are all planned in one repo, so the tasks they share only run once,
+     * and the rest of their tasks run at the same time.
+     * <p>
+     * If there is an output json, and more than one artifact, each artifact's data is written under its coordinates.
+     */
+    public void run(List<Artifact> artifacts) {
+        run(new MCPConfigRepo(this.cache, dependenciesOnly), artifacts, _ -> true);
+    }
+
+    /**
+     * Generates several artifacts at once, see {@link #run(List)}.
+     *
+     * @param mcprepo   The repo to plan in, tasks already run in this repo are not run again
+     * @param artifacts The artifacts to generate
+     * @param selected  Which files to write, by the artifact they are written as. Only the tasks behind them are run
+     */
+    public void run(MCPConfigRepo mcprepo, List<Artifact> artifacts, Predicate<Artifact> selected) {
+        // The same artifact given twice would only do the same work twice
+        var unique = new ArrayList<>(new LinkedHashSet<>(artifacts));
+        if (unique.isEmpty())
+            throw new IllegalArgumentException("No artifacts specified");
+
+        for (var artifact : unique) {
+            var module = artifact.getGroup() + ':' + artifact.getName();
+            if (!isForge(artifact) && !Constants.MC_GROUP.equals(artifact.getGroup()))
+                throw new IllegalArgumentException("Artifact '%s' is currently Unsupported. Will add later".formatted(module));
+            LOGGER.info("Processing Minecraft dependency: %s:%s".formatted(module, artifact.getVersion()));
+        }
+
+        Map<Artifact, Map<String, Supplier<String>>> outputJson = null;
         if (outputJsonFile != null) {
-            outputJson = new HashMap<>();
-            outputJson.put("spec", () -> "1");
+            outputJson = new LinkedHashMap<>();
+            for (var artifact : unique) {
+                var data = new HashMap<String, Supplier<String>>();
+                data.put("spec", () -> "1");
+                outputJson.put(artifact, data);
+            }
         }
 
-        var mcprepo = new MCPConfigRepo(this.cache, dependenciesOnly);
-        if (Constants.FORGE_GROUP.equals(artifact.getGroup()) && Constants.FORGE_NAME.equals(artifact.getName())) {
-            var repo = new ForgeRepo(this.cache, mcprepo);
-            createForge(artifact, mcprepo, repo, outputJson);
-        } else if (Constants.MC_GROUP.equals(artifact.getGroup())) {
-            createMinecraft(artifact, mcprepo, outputJson);
-        } else {
-            throw new IllegalArgumentException("Artifact '%s' is currently Unsupported. Will add later".formatted(module));
+        prefetch(unique, mcprepo);
+
+        // Sides of the same Minecraft version are planned together, so they can share the version's mappings
+        var planned = new ArrayList<Planned>();
+        var sides = new LinkedHashMap<String, List<Artifact>>();
+        ForgeRepo forge = null;
+        for (var artifact : unique) {
+            if (isForge(artifact)) {
+                if (forge == null)
+                    forge = new ForgeRepo(this.cache, mcprepo);
+                planned.addAll(createForge(artifact, mcprepo, forge, outputJson == null ? null : outputJson.get(artifact), selected));
+            } else {
+                sides.computeIfAbsent(artifact.getVersion(), _ -> new ArrayList<>()).add(artifact);
+            }
         }
+        for (var group : sides.values())
+            planned.addAll(createMinecraft(group, mcprepo, outputJson, selected));
+
+        build(planned, selected);
 
         if (outputJson != null) {
-            var finalized = new TreeMap<String, String>();
-            for (var entry : outputJson.entrySet())
-                finalized.put(entry.getKey(), entry.getValue().get());
+            var single = unique.size() == 1;
+            var finalized = new TreeMap<String, Object>();
+            if (!single)
+                finalized.put("spec", "1");
+            for (var artifact : unique) {
+                var data = resolveJson(outputJson.get(artifact));
+                if (single)
+                    finalized.putAll(data);
+                else
+                    finalized.put(artifact.toString(), data);
+            }
 
             var parent = outputJsonFile.getParentFile();
             if (parent != null && !parent.exists())
@@ -138,6 +188,60 @@ public record MinecraftMaven(
                 LOGGER.error("Failed to write output json file: " + outputJsonFile.getAbsolutePath(), e);
                 Util.sneak(e);
             }
+            Mavenizer.produced(outputJsonFile);
+        }
+    }
+
+    private static Map<String, String> resolveJson(Map<String, Supplier<String>> outputJson) {
+        var ret = new TreeMap<String, String>();
+        for (var entry : outputJson.entrySet()) {
+            var value = entry.getValue().get();
+            ret.put(entry.getKey(), value);
+            // Consumers read these files directly, so they are as much an output as the repository
+            if (value != null && new File(value).isFile())
+                Mavenizer.produced(new File(value));
+        }
+        return ret;
+    }
+
+    private static boolean isForge(Artifact artifact) {
+        return Constants.FORGE_GROUP.equals(artifact.getGroup()) && Constants.FORGE_NAME.equals(artifact.getName());
+    }
+
+    private void prefetch(List<Artifact> artifacts, MCPConfigRepo mcprepo) {
+        // Nothing to download, or only the metadata is needed
+        if (Mavenizer.isOffline() || dependenciesOnly)
+            return;
+
+        var prefetch = new Prefetch(this.cache, mcprepo);
+        var planned = false;
+        for (var artifact : artifacts) {
+            var version = artifact.getVersion();
+            // Bulk operations would need to plan every version up front, so let them download as they go
+            if (version == null || "all".equals(version) || version.startsWith("["))
+                continue;
+
+            prefetch.artifact(artifact);
+            planned = true;
+        }
+        if (!planned)
+            return;
+
+        if (stubJars)
+            prefetch.tool(Constants.STUBIFY, Constants.STUBIFY_JAVA_VERSION);
+        if (!accessTransformer.isEmpty())
+            prefetch.tool(Constants.ACCESS_TRANSFORMER, Constants.ACCESS_TRANSFORMER_JAVA_VERSION);
+        if (!facadeConfigs.isEmpty())
+            prefetch.tool(Constants.FACADE, Constants.FACADE_JAVA_VERSION);
+
+        // JDKs are left to be found when a tool actually runs, so up-to-date runs don't need to locate them
+        try {
+            prefetch.run(Prefetch.DEFAULT_THREADS, false);
+        } catch (IllegalStateException e) {
+            // Anything that is actually needed will be downloaded again by its task, which will have a better error
+            LOGGER.warn(e.getMessage() + ", they will be retried when needed");
+            for (var suppressed : e.getSuppressed())
+                LOGGER.debug("  " + suppressed);
         }
     }
 
@@ -171,7 +275,8 @@ public record MinecraftMaven(
         }
     }
 
-    protected void createForge(Artifact artifact, MCPConfigRepo mcprepo, ForgeRepo repo, Map<String, Supplier<String>> outputJson) {
+    /** @return The modules to build, bulk operations build each version as they go and return nothing */
+    protected List<Planned> createForge(Artifact artifact, MCPConfigRepo mcprepo, ForgeRepo repo, Map<String, Supplier<String>> outputJson, Predicate<Artifact> selected) {
         if (dependenciesOnly)
             throw new IllegalArgumentException("ForgeRepo doesn't currently support dependenciesOnly");
 
@@ -222,13 +327,14 @@ public record MinecraftMaven(
                 var artifacts = repo.process(art, mappings, outputJson);
                 LOGGER.push();
                 try {
-                    finalize(art, mappings, artifacts, mappings.equals(primary));
+                    finalize(art, mappings, artifacts, mappings.equals(primary), selected);
                 } finally {
                     LOGGER.pop();
                 }
             }
 
             ForgeRepo.Info.finish();
+            return List.of();
         } else {
             if (StupidHacks.BLACKLISTED_FORGE_BUILDS.contains(artifact.getVersion()))
                 throw new IllegalArgumentException("Forge version " + artifact.getVersion() + " has been blacklisted for technical reasons, pick a different Forge version");
@@ -238,33 +344,22 @@ public record MinecraftMaven(
             var mappings = resolve(primary, mcVersion);
 
             var artifacts = repo.process(artifact, mappings, outputJson);
-            finalize(artifact, mappings, artifacts, mappings.equals(primary));
+            return List.of(new Planned(artifact, mappings, artifacts, mappings.equals(primary)));
         }
     }
 
-    protected void createMinecraft(Artifact artifact, MCPConfigRepo mcprepo, Map<String, Supplier<String>> outputJson) {
-        if (artifact.getVersion() == null)
-            throw new IllegalArgumentException("No version specified for MCPConfig");
-
-        var version = artifact.getVersion();
+    /** @return The modules to build, bulk operations build each version as they go and return nothing */
+    protected List<Planned> createMinecraft(List<Artifact> sides, MCPConfigRepo mcprepo, @Nullable Map<Artifact, Map<String, Supplier<String>>> outputJson, Predicate<Artifact> selected) {
+        var version = sides.get(0).getVersion();
         if (version == null)
-            throw new IllegalArgumentException("No version specified for Forge");
-
-        // Quick check of maven-metadata.xml to get a list of known MCPConfig versions
-        var maven = mcprepo.getCache().maven();
-        var mcpConfigVersions = new HashSet<>(maven.getVersions(MCP.artifact("1.21.11")));
-        mcpConfigVersions.remove("1.12.2"); // Force 1.12.2 to not use MCPConfig, instead using the legacy MCP toolchain
-        var mcpLegacyVersions = new HashSet<>(maven.getVersions(MCPLegacy.artifact("1.12.2")));
-        // Used while developing on maven local
-        //mcpLegacyVersions.addAll(List.of("1.7.2", "1.7.10-pre4", "1.7.10"));
+            throw new IllegalArgumentException("No version specified for MCPConfig");
 
         var range = Range.ofMc(version);
         if (range != null || "all".equals(version)) {
             if (outputJson != null)
                 throw new IllegalArgumentException("Output Json does not support bulk operations");
 
-            var manifestFile = mcprepo.getLauncherManifestTask().execute();
-            var manifest = JsonData.launcherManifest(manifestFile);
+            var manifest = mcprepo.getLauncherManifest();
             // The launcher manifest is normally in reverse release order, so don't worry about sorting them.
             for (var ver : manifest.versions) {
                 MinecraftVersion cver;
@@ -272,58 +367,118 @@ public record MinecraftMaven(
                     cver = MinecraftVersion.from(ver.id);
                     if (range != null && !range.contains(cver))
                         continue;
-                    if (cver.compareTo(MIN_OFFICIAL_MAPPINGS) < 0 && !mcpConfigVersions.contains(ver.id) && !mcpLegacyVersions.contains(ver.id))
+                    if (cver.compareTo(MIN_OFFICIAL_MAPPINGS) < 0 && !mcprepo.hasMCPConfig(ver.id) && !mcprepo.hasMCPLegacy(ver.id))
                         continue;
                 } catch (IllegalArgumentException e) {
                     // Invalid/unknown version, so skip.
                     continue;
                 }
 
-                var versioned = artifact.withVersion(ver.id);
-                // If there is no MCPConfig, then we just produce a official named jar
-                List<PendingArtifact> artifacts = null;
-
                 var primary = getVanillaPrimary(mcprepo, ver.id);
                 var mappings = resolve(primary, ver.id);
 
-                if (mcpConfigVersions.contains(ver.id))
-                    artifacts = mcprepo.process(versioned, mappings, outputJson);
-                else if (mcpLegacyVersions.contains(ver.id))
-                    artifacts = mcprepo.processLegacy(versioned, mappings, outputJson);
-                else if (hasOfficialMappings(mcprepo, ver.id) || !MCPConfigRepo.isObfuscated(ver.id))
-                    artifacts = mcprepo.processWithoutMcp(versioned, mappings, outputJson);
-                else {
-                    LOGGER.info("Skipping " + versioned + " no mcp config");
-                    continue;
+                var planned = new ArrayList<Planned>(sides.size());
+                for (var side : sides) {
+                    var versioned = side.withVersion(ver.id);
+                    // If there is no MCPConfig, then we just produce a official named jar
+                    List<PendingArtifact> artifacts = switch (mcprepo.getToolchain(ver.id)) {
+                        case MCP_CONFIG -> mcprepo.process(versioned, mappings, null);
+                        case MCP_LEGACY -> mcprepo.processLegacy(versioned, mappings, null);
+                        case OFFICIAL -> mcprepo.processWithoutMcp(versioned, mappings, null);
+                        case NONE -> null;
+                    };
+                    if (artifacts == null) {
+                        LOGGER.info("Skipping " + versioned + " no mcp config");
+                        continue;
+                    }
+                    planned.add(new Planned(versioned, mappings, artifacts, mappings.equals(primary)));
                 }
+
                 LOGGER.push();
                 try {
-                    finalize(versioned, mappings, artifacts, mappings.equals(primary));
+                    build(planned, selected);
                 } finally {
                     LOGGER.pop();
                 }
             }
+            return List.of();
         } else {
             var mcVersion = mcpToMcVersion(version);
             var primary = getVanillaPrimary(mcprepo, mcVersion);
             var mappings = resolve(primary, mcVersion);
 
-            List<PendingArtifact> artifacts = null;
-            if (mcpConfigVersions.contains(version))
-                artifacts = mcprepo.process(artifact, mappings, outputJson);
-            else if (mcpLegacyVersions.contains(version))
-                artifacts = mcprepo.processLegacy(artifact, mappings, outputJson);
-            else if (hasOfficialMappings(mcprepo, mcVersion) || !MCPConfigRepo.isObfuscated(mcVersion))
-                artifacts = mcprepo.processWithoutMcp(artifact, mappings, outputJson);
-            else
-                throw new IllegalStateException("Can not process " + artifact + " as it does not have a MCPConfig, MCPLegacy, or official mappings");
-
-            finalize(artifact, mappings, artifacts, mappings.equals(primary));
+            var planned = new ArrayList<Planned>(sides.size());
+            for (var artifact : sides) {
+                var json = outputJson == null ? null : outputJson.get(artifact);
+                var artifacts = switch (mcprepo.getToolchain(version)) {
+                    case MCP_CONFIG -> mcprepo.process(artifact, mappings, json);
+                    case MCP_LEGACY -> mcprepo.processLegacy(artifact, mappings, json);
+                    case OFFICIAL -> mcprepo.processWithoutMcp(artifact, mappings, json);
+                    case NONE -> throw new IllegalStateException("Can not process " + artifact + " as it does not have a MCPConfig, MCPLegacy, or official mappings");
+                };
+                planned.add(new Planned(artifact, mappings, artifacts, mappings.equals(primary)));
+            }
+            return planned;
+        }
+    }
+
+    /** A module whose tasks have been created, but not run yet. */
+    protected record Planned(Artifact module, Mappings mappings, List<PendingArtifact> artifacts, boolean isPrimary) {}
+
+    /**
+     * Builds and writes the planned modules. When there is more than one, each module's tasks are run on its own thread
+     * first. They come from the same repo, so tasks they share, such as downloading the game and its mappings, run once
+     * while the others wait, and then the independent strip, decompile and patch chains of each module run at the same time.
+     */
+    private void build(List<Planned> planned, Predicate<Artifact> selected) {
+        if (planned.size() > 1)
+            buildParallel(planned, selected);
+
+        for (var plan : planned)
+            finalize(plan.module(), plan.mappings(), plan.artifacts(), plan.isPrimary(), selected);
+    }
+
+    private void buildParallel(List<Planned> planned, Predicate<Artifact> selected) {
+        var names = new ArrayList<String>(planned.size());
+        for (var plan : planned)
+            names.add(plan.module().getName());
+        LOGGER.info("Building " + String.join(", ", names) + " in parallel");
+
+        var errors = new ArrayList<Throwable>();
+        try (var executor = Executors.newFixedThreadPool(planned.size())) {
+            var futures = new ArrayList<Future<?>>(planned.size());
+            for (var plan : planned) {
+                futures.add(executor.submit(() -> {
+                    for (var pending : plan.artifacts()) {
+                        if (pending != null && isSelected(pending, plan.module(), plan.mappings(), plan.isPrimary(), selected))
+                            pending.task().execute();
+                    }
+                }));
+            }
+
+            for (var future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    errors.add(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while building " + String.join(", ", names), e);
+                }
+            }
+        }
+
+        if (errors.size() == 1)
+            Util.sneak(errors.get(0));
+        if (!errors.isEmpty()) {
+            var ret = new IllegalStateException("Failed to build " + errors.size() + " artifacts");
+            errors.forEach(ret::addSuppressed);
+            throw ret;
         }
     }
 
     private Mappings getVanillaPrimary(MCPConfigRepo repo, String version) {
-        return !MCPConfigRepo.isObfuscated(version) || hasOfficialMappings(repo, version)
+        return !MCPConfigRepo.isObfuscated(version) || repo.hasOfficialMappings(version)
             ? Mappings.of("official", version)
             : Mappings.of("srg", version);
     }
@@ -336,14 +491,40 @@ public record MinecraftMaven(
         return this.mappings.withMCVersion(mcVersion);
     }
 
-    // No official mappings, we can't do anything
-    private static boolean hasOfficialMappings(MCPConfigRepo repo, String version) {
-        var tasks = repo.getMCTasks(version);
-        var versionF = tasks.versionJson.execute();
-        var json = JsonData.minecraftVersion(versionF);
+    /** The kinds of file that can be selected with {@link #only(Collection)}. */
+    public static final List<String> KINDS = List.of("classes", "sources", "metadata", "pom", "module", "mappings");
+
+    /**
+     * Selects files by kind, so that only the tasks behind them are run. For example, only {@code sources} skips
+     * recompiling, and {@code pom,metadata,mappings} skips decompiling altogether.
+     *
+     * @param kinds The kinds of file to write, see {@link #KINDS}
+     * @return The selection, for {@link #run(MCPConfigRepo, List, Predicate)}
+     */
+    public static Predicate<Artifact> only(Collection<String> kinds) {
+        for (var kind : kinds) {
+            if (!KINDS.contains(kind))
+                throw new IllegalArgumentException("Unknown artifact kind '" + kind + "', expected one of " + KINDS);
+        }
+
+        var selected = Set.copyOf(kinds);
+        return artifact -> selected.contains(kindOf(artifact));
+    }
 
-        return json.getDownload(MinecraftTasks.MCFile.CLIENT_MAPPINGS.key) != null ||
-            json.getDownload(MinecraftTasks.MCFile.SERVER_MAPPINGS.key) != null;
+    private static String kindOf(Artifact artifact) {
+        // Mappings are their own artifact, which includes their pom
+        if (artifact.getName().startsWith("mappings_"))
+            return "mappings";
+
+        // Classifiers may have the mappings added to the end
+        var classifier = artifact.getClassifier() == null ? "" : artifact.getClassifier();
+        return switch (artifact.getExtension()) {
+            case "pom" -> "pom";
+            case "module" -> "module";
+            default -> classifier.startsWith("sources") ? "sources"
+                     : classifier.startsWith("metadata") ? "metadata"
+                     : "classes";
+        };
     }
 
     public static String mcpToMcVersion(String version) {
@@ -357,10 +538,45 @@ public record MinecraftMaven(
         return version.substring(0, idx);
     }
 
-    protected void finalize(Artifact module, Mappings mappings, List<Repo.PendingArtifact> artifacts, boolean isPrimary) {
+    protected void finalize(Artifact module, Mappings mappings, List<Repo.PendingArtifact> artifacts, boolean isPrimary, Predicate<Artifact> selected) {
+        // We check the cache outside of tasks here, so finish any output locks, uploads and deduplication that takes ourselves
+        var locks = FileLocks.mark();
+        var remote = RemoteCache.mark();
+        var written = Mavenizer.markWritten();
+        var success = false;
+        try {
+            finalizeImpl(module, mappings, artifacts, isPrimary, selected);
+            success = true;
+        } finally {
+            RemoteCache.complete(remote, success);
+            Mavenizer.dedupeWritten(written, success);
+            FileLocks.release(locks);
+        }
+    }
+
+    /** @return The artifact a pending artifact is written as, variants of non-primary mappings get the mappings added to their classifier */
+    private Artifact outputArtifact(PendingArtifact pending, Mappings mappings, boolean isPrimary) {
+        var artifact = pending.artifact();
+        if (disableGradle || pending.variants() == null || isPrimary)
+            return artifact;
+
+        var suffix = mappings.channel() + '-' + mappings.version();
+        return artifact.getClassifier() == null
+            ? artifact.withClassifier(suffix)
+            : artifact.withClassifier(artifact.getClassifier() + '-' + suffix);
+    }
+
+    /** @return If a pending artifact should be written, the Gradle module lists every file with variants so it needs all of them */
+    private boolean isSelected(PendingArtifact pending, Artifact module, Mappings mappings, boolean isPrimary, Predicate<Artifact> selected) {
+        if (selected.test(outputArtifact(pending, mappings, isPrimary)))
+            return true;
+        return !disableGradle && pending.variants() != null && selected.test(module.withExtension("module"));
+    }
+
+    private void finalizeImpl(Artifact module, Mappings mappings, List<Repo.PendingArtifact> artifacts, boolean isPrimary, Predicate<Artifact> selected) {
         var variants = new HashSet<Artifact>();
         for (var pending : artifacts) {
-            if (pending == null)
+            if (pending == null || !isSelected(pending, module, mappings, isPrimary, selected))
                 continue;
 
             // Basically, I want to support multiple variants of a Forge dep.
@@ -407,8 +623,10 @@ public record MinecraftMaven(
             var target = new File(this.output, artifact.getLocalPath());
             updateFile(target, pending.get(), pending.artifact(), isPrimary);
 
+            // The Gradle module is only written if it was asked for, everything it lists was selected along with it
             var varTarget = new File(this.output, artifact.getLocalPath() + ".variants");
-            if (!disableGradle && pending.variants() != null) {
+            if (!disableGradle && pending.variants() != null && selected.test(module.withExtension("module"))) {
+                Mavenizer.produced(varTarget);
                 var source = pending.variants().execute();
                 var cache = Util.cache(varTarget)
                     .add("source", source);
@@ -427,7 +645,7 @@ public record MinecraftMaven(
                         }
                         // Sort them to make it predictable/easy to diff
                         Arrays.sort(data, (a, b) -> a.name.compareTo(b.name));
-                        JsonData.toJson(data, varTarget);
+                        GradleModuleWriter.write(data, varTarget);
                         cache.save();
                     } catch (Throwable t) {
                         throw new RuntimeException("Failed to write artifact variants: %s".formatted(artifact), t);
@@ -442,6 +660,7 @@ public record MinecraftMaven(
     }
 
     private void updateFile(File target, File source, Artifact artifact, boolean isPrimary) {
+        Mavenizer.produced(target);
         var cache = Util.cache(target)
             .add("source", source);
 
@@ -458,15 +677,16 @@ public record MinecraftMaven(
             write = true;
 
         if (write) {
-            try {
+            try (var _ = FileLocks.lock(FileLocks.lockFile(target))) {
+                Mavenizer.detach(target);
                 if (disableGradle && isPom) {
                     makeNonGradlePom(source, target);
                 } else {
-                    FileUtils.ensureParent(target);
-                    Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    Util.publish(target, tmp -> Files.copy(source.toPath(), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING));
                 }
                 HashUtils.updateHash(target);
                 cache.save();
+                Mavenizer.dedupe(target);
             } catch (Throwable t) {
                 throw new RuntimeException("Failed to generate artifact: %s".formatted(artifact), t);
             }
@@ -590,11 +810,17 @@ public record MinecraftMaven(
         var root = new File(this.output, artifact.getFolder());
         var inputs = new ArrayList<File>();
         for (var file : root.listFiles()) {
-            if (file.isFile() && file.getName().endsWith(".variants"))
+            if (!file.isFile() || !file.getName().endsWith(".variants"))
+                continue;
+
+            // Only list variants whose file was actually generated, runs using --only may not have made all of them
+            var name = file.getName();
+            if (new File(root, name.substring(0, name.length() - ".variants".length())).isFile())
                 inputs.add(file);
         }
 
         var target = new File(this.output, artifact.withExtension("module").getLocalPath());
+        Mavenizer.produced(target);
         var cache = Util.cache(target);
         cache.add("codever", "1");
         for (var input : inputs) {
@@ -604,7 +830,7 @@ public record MinecraftMaven(
         if (Mavenizer.checkCache(target, cache))
             return;
 
-        var seen = new HashSet<String>();
+        var seen = new HashSet<Map<String, Object>>();
         var module = GradleModule.of(artifact);
         for (var input : inputs) {
             try {
@@ -612,8 +838,7 @@ public record MinecraftMaven(
                 for (var variant : data) {
                     // Stupid hack to work around a bug in our old system. (MCPMappings was marked as 'primary' so we may run into duplicate variants)
                     // Variants must have unique attributes
-                    var attributes = JsonData.toJson(variant.attributes);
-                    if (seen.add(attributes))
+                    if (seen.add(variant.attributes))
                         module.variant(variant);
                 }
             } catch (Throwable t) {
@@ -622,7 +847,7 @@ public record MinecraftMaven(
         }
 
         try {
-            JsonData.toJson(module, target);
+            GradleModuleWriter.write(module, target);
             HashUtils.updateHash(target);
             cache.save();
         } catch (Throwable t) {
@@ -630,62 +855,18 @@ public record MinecraftMaven(
         }
     }
 
-    private void makeNonGradlePom(File source, File target) throws IOException, SAXException, ParserConfigurationException, TransformerException {
-        var docFactory = DocumentBuilderFactory.newInstance();
-        var docBuilder = docFactory.newDocumentBuilder();
-        var doc = docBuilder.parse(source);
-
-        var modified = false;
-        var projects = doc.getElementsByTagName("project");
-        for (var x = 0; x < projects.getLength(); x++) {
-            var project = projects.item(x);
-            var children = project.getChildNodes();
-            for (int y = 0; y < children.getLength(); y++) {
-                var child = children.item(y);
-                if (child.getNodeType() == Node.COMMENT_NODE) {
-                    var content = child.getTextContent();
-                    if (content.equals(POMBuilder.GRADLE_MAGIC_COMMENT)) {
-                        project.removeChild(child);
-                        y--;
-                        modified = true;
-                    }
-                }
-            }
-        }
-
-        if (!modified) {
-            FileUtils.ensureParent(target);
-            Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            return;
+    // Drops the Gradle marker comment from the POM, so Gradle reads the POM instead of looking for a module
+    private static void makeNonGradlePom(File source, File target) throws IOException, XMLStreamException {
+        String data;
+        try (var is = new BufferedInputStream(new FileInputStream(source))) {
+            data = POMBuilder.removeGradleMarker(is);
         }
 
-        var transformerFactory = TransformerFactory.newInstance();
-        var transformer = transformerFactory.newTransformer(new StreamSource(new StringReader(
-            // This needs to strip spacing so our output doesn't have extra whitespace
-            """
-            <xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
-                <xsl:strip-space elements="*"/>
-                <xsl:output method="xml" encoding="UTF-8"/>
-
-                <xsl:template match="@*|node()">
-                    <xsl:copy>
-                        <xsl:apply-templates select="@*|node()"/>
-                    </xsl:copy>
-                </xsl:template>
-            </xsl:stylesheet>
-            """
-        )));
-
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes"); //Make it pretty
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-
-        var output = new ByteArrayOutputStream();
-        transformer.transform(new DOMSource(doc), new StreamResult(output));
-        var data = output.toString().getBytes(StandardCharsets.UTF_8);
-
-        FileUtils.ensureParent(target);
-        try (var os = new FileOutputStream(target)) {
-            os.write(data);
+        if (data == null) {
+            Util.publish(target, tmp -> Files.copy(source.toPath(), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING));
+        } else {
+            var bytes = data.getBytes(StandardCharsets.UTF_8);
+            Util.publish(target, tmp -> Files.write(tmp.toPath(), bytes));
         }
     }
 }
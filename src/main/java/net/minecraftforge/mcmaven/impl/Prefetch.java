@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+
+import net.minecraftforge.mcmaven.impl.cache.Cache;
+import net.minecraftforge.mcmaven.impl.cache.MavenCache;
+import net.minecraftforge.mcmaven.impl.repo.forge.ForgeRepo;
+import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCP;
+import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCPConfigRepo;
+import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MinecraftTasks;
+import net.minecraftforge.mcmaven.impl.util.Artifact;
+import net.minecraftforge.mcmaven.impl.util.Constants;
+import net.minecraftforge.mcmaven.impl.util.StupidHacks;
+import net.minecraftforge.mcmaven.impl.util.Util;
+
+/**
+ * Collects every remote input needed to build an artifact and downloads them all at once, before any processing starts.
+ * <p>
+ * Most downloads happen inside of task bodies, so we can't discover them by walking {@link net.minecraftforge.mcmaven.impl.util.Task}
+ * dependencies. Instead this plans from the same data the tasks use: the launcher manifest, version json, and MCPConfig or
+ * legacy MCP zip, as well as the Forge userdev config that names the MCPConfig version. Those are fetched while
+ * planning, as everything else is derived from them.
+ */
+public final class Prefetch {
+    public static final int DEFAULT_THREADS = 8;
+
+    private final Cache cache;
+    private final MCPConfigRepo repo;
+    private final Map<String, Callable<?>> downloads = new LinkedHashMap<>();
+    private final Set<Integer> jdks = new TreeSet<>();
+
+    public Prefetch(Cache cache, MCPConfigRepo repo) {
+        this.cache = cache;
+        this.repo = repo;
+    }
+
+    /**
+     * Plans the downloads needed to build the given artifact.
+     *
+     * @param artifact The artifact, must have a version, ranges and bulk versions are not supported
+     */
+    public Prefetch artifact(Artifact artifact) {
+        var version = artifact.getVersion();
+        if (version == null)
+            throw new IllegalArgumentException("Can not prefetch artifact without a version: " + artifact);
+
+        if (Constants.FORGE_GROUP.equals(artifact.getGroup()) && Constants.FORGE_NAME.equals(artifact.getName())) {
+            // Modern MCPConfig versions are timestamped, so the exact one has to come from the userdev config.
+            // Older Forge uses the legacy MCP, which is picked by the Minecraft version alone.
+            var mcp = new ForgeRepo(this.cache, this.repo).getMCPVersion(version);
+            toolchain(mcp != null ? mcp : Util.forgeToMcVersion(version));
+        } else if (Constants.MC_GROUP.equals(artifact.getGroup())) {
+            toolchain(version);
+        } else {
+            throw new IllegalArgumentException("Artifact '%s' is currently Unsupported. Will add later".formatted(artifact));
+        }
+
+        return this;
+    }
+
+    /** Plans the inputs of whichever toolchain {@link MinecraftMaven} builds the version with */
+    private void toolchain(String version) {
+        switch (this.repo.getToolchain(version)) {
+            case MCP_CONFIG -> mcp(version);
+            case MCP_LEGACY -> legacy(version);
+            case OFFICIAL -> minecraft(MinecraftMaven.mcpToMcVersion(version));
+            case NONE -> { } // The build will fail with a better error
+        }
+    }
+
+    /** Plans the vanilla files and libraries for a Minecraft version */
+    public Prefetch minecraft(String version) {
+        var tasks = this.repo.getMCTasks(version);
+        var json = tasks.getVersionJson();
+
+        for (var file : MinecraftTasks.MCFile.values()) {
+            if (json.getDownload(file.key) != null) {
+                var task = tasks.versionFile(file);
+                add(task.name(), task::execute);
+            }
+        }
+
+        for (var lib : json.getLibs()) {
+            // Natives don't have main download
+            if (lib.dl != null)
+                add(lib.dl.path, () -> this.cache.minecraft().download(lib.dl));
+        }
+
+        tool(Constants.RENAMER, Constants.RENAMER_JAVA_VERSION);
+
+        var java = tasks.getJavaVersion();
+        if (java != null)
+            this.jdks.add(java);
+
+        return this;
+    }
+
+    /** Plans the MCPConfig functions and libraries, as well as the Minecraft version it is for */
+    public Prefetch mcp(String version) {
+        var mcp = this.repo.get(MCP.artifact(version));
+        var config = mcp.getConfig();
+        minecraft(config.version);
+
+        if (config.functions != null) {
+            for (var func : config.functions.values()) {
+                var tools = new MavenCache("mcp-tools", func.repo, this.cache.root());
+                var artifact = StupidHacks.fixLegacyTools(Artifact.from(func.version));
+                add("mcp-tools:" + artifact, () -> tools.download(artifact));
+                this.jdks.add(func.getJavaVersion(config));
+            }
+        }
+
+        for (var side : config.steps.keySet()) {
+            for (var lib : config.getLibraries(side)) {
+                var artifact = StupidHacks.fixLegacyTools(Artifact.from(lib));
+                add(artifact.toString(), () -> this.cache.maven().download(artifact));
+            }
+        }
+
+        return this;
+    }
+
+    /** Plans the legacy MCP tools, as well as the Minecraft version it is for */
+    public Prefetch legacy(String version) {
+        var mcp = this.repo.legacy(version);
+        minecraft(mcp.getMinecraftTasks().getVersion());
+        mcp.forAllTools(this::tool);
+        return this;
+    }
+
+    /** Plans a tool jar, and the JDK needed to run it */
+    public Prefetch tool(Artifact artifact, int javaVersion) {
+        add(artifact.toString(), () -> this.cache.maven().download(artifact));
+        this.jdks.add(javaVersion);
+        return this;
+    }
+
+    private void add(String name, Callable<?> download) {
+        this.downloads.putIfAbsent(name, download);
+    }
+
+    /**
+     * Downloads everything that has been planned.
+     *
+     * @param threads  The number of concurrent downloads
+     * @param withJdks If JDKs should be provisioned as well
+     * @throws IllegalStateException If anything failed to download, after all other downloads have finished
+     */
+    public void run(int threads, boolean withJdks) {
+        var total = this.downloads.size() + (withJdks ? this.jdks.size() : 0);
+        LOGGER.info("Prefetching " + total + " inputs");
+        LOGGER.push();
+
+        var errors = new ArrayList<Throwable>();
+        try (var executor = Executors.newFixedThreadPool(Math.max(1, threads))) {
+            var service = new ExecutorCompletionService<String>(executor);
+            for (var entry : this.downloads.entrySet()) {
+                var name = entry.getKey();
+                var download = entry.getValue();
+                service.submit(() -> {
+                    download.call();
+                    return name;
+                });
+            }
+
+            if (withJdks) {
+                for (var version : this.jdks) {
+                    service.submit(() -> {
+                        this.cache.jdks().get(version);
+                        return "JDK " + version;
+                    });
+                }
+            }
+
+            for (int done = 1; done <= total; done++) {
+                try {
+                    var name = service.take().get();
+                    LOGGER.debug("[" + done + '/' + total + "] " + name);
+                } catch (ExecutionException e) {
+                    errors.add(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while prefetching", e);
+                }
+
+                if (done % 25 == 0 || done == total)
+                    LOGGER.info("Downloaded " + done + '/' + total);
+            }
+        } finally {
+            LOGGER.pop();
+        }
+
+        if (!errors.isEmpty()) {
+            var ret = new IllegalStateException("Failed to prefetch " + errors.size() + " inputs");
+            errors.forEach(ret::addSuppressed);
+            throw ret;
+        }
+    }
+}
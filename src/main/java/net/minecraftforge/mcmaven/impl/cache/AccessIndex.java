@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.minecraftforge.mcmaven.impl.util.FileLocks;
+import net.minecraftforge.mcmaven.impl.util.Util;
+
+/**
+ * Tracks when cache entries were last used, so {@link CacheCleaner} can evict the least recently used ones first.
+ * <p>
+ * Accesses are kept in memory during a run and merged into {@value #INDEX} by {@link #flush()}, which keeps cache
+ * hits from touching the disk. Entries that have never been recorded fall back to their modified time.
+ */
+public final class AccessIndex {
+    private static final String INDEX = "access.index";
+
+    private final File index;
+    private final Map<File, Long> accessed = new ConcurrentHashMap<>();
+
+    /** @param root The cache root */
+    public AccessIndex(File root) {
+        this.index = new File(root, INDEX);
+    }
+
+    /** Records that the given file was used by this run. */
+    public void record(File file) {
+        this.accessed.put(file.getAbsoluteFile(), System.currentTimeMillis());
+    }
+
+    /** @return Every file used by this run so far */
+    public Set<File> accessed() {
+        return Collections.unmodifiableSet(this.accessed.keySet());
+    }
+
+    /** @return The last access time of every known file, including this run */
+    public Map<File, Long> load() {
+        try (var _ = FileLocks.lock(FileLocks.lockFile(this.index))) {
+            var ret = read();
+            merge(ret);
+            return ret;
+        } catch (IOException e) {
+            return Util.sneak(e);
+        }
+    }
+
+    /** Writes this run's accesses to disk, and drops entries for files that no longer exist. */
+    public void flush() {
+        update(Set.of());
+    }
+
+    /** Removes the given files from the index, used once they have been evicted. */
+    public void forget(Collection<File> files) {
+        for (var file : files)
+            this.accessed.remove(file.getAbsoluteFile());
+        update(files);
+    }
+
+    private void update(Collection<File> removed) {
+        if (this.accessed.isEmpty() && removed.isEmpty())
+            return;
+
+        try (var _ = FileLocks.lock(FileLocks.lockFile(this.index))) {
+            var data = read();
+            merge(data);
+            for (var file : removed)
+                data.remove(file.getAbsoluteFile());
+            data.keySet().removeIf(f -> !f.exists());
+
+            var lines = new ArrayList<String>(data.size());
+            for (var entry : data.entrySet())
+                lines.add(entry.getValue() + " " + entry.getKey().getPath());
+            Util.publish(this.index, tmp -> Files.write(tmp.toPath(), lines, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Util.sneak(e);
+        }
+    }
+
+    private void merge(Map<File, Long> data) {
+        for (var entry : this.accessed.entrySet())
+            data.merge(entry.getKey(), entry.getValue(), Math::max);
+    }
+
+    private Map<File, Long> read() throws IOException {
+        var ret = new HashMap<File, Long>();
+        if (!this.index.exists())
+            return ret;
+
+        for (var line : Files.readAllLines(this.index.toPath(), StandardCharsets.UTF_8)) {
+            int idx = line.indexOf(' ');
+            if (idx <= 0)
+                continue;
+            try {
+                ret.put(new File(line.substring(idx + 1)), Long.parseLong(line, 0, idx, 10));
+            } catch (NumberFormatException e) {
+                // Corrupt line, treat it as never accessed
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import net.minecraftforge.mcmaven.impl.util.FileLocks;
+import net.minecraftforge.mcmaven.impl.util.Util;
+import net.minecraftforge.util.file.FileUtils;
+import net.minecraftforge.util.hash.HashFunction;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+/**
+ * Content addressed storage for task outputs, so identical files produced for different versions, mappings, or
+ * artifacts only take up space once.
+ * <p>
+ * Each blob is stored as {@code <root>/<xx>/<sha256>}, and outputs are replaced with hardlinks to it. Next to each
+ * blob is a {@code .refs} file listing every path that was linked to it. A reference is only counted while that path
+ * still exists and is the same file as the blob, so outputs that have been deleted or rewritten release their blob
+ * without needing to tell us. See {@link #collect()}.
+ * <p>
+ * Hardlinks share their contents, so anything rewriting an output in place must {@link #detach(File)} it first.
+ * {@link net.minecraftforge.mcmaven.impl.Mavenizer#checkCache} does this on every cache miss. Blobs are read only, so
+ * anything else that tries to write to a linked output fails instead of silently changing every copy.
+ */
+public final class BlobStore {
+    private static final String REFS = ".refs";
+
+    private final File root;
+    private final List<Path> managed = new CopyOnWriteArrayList<>();
+    private volatile boolean supported = true;
+
+    /**
+     * @param root    The directory to store blobs in
+     * @param managed Directories we are allowed to replace files in, anything else is left alone
+     */
+    public BlobStore(File root, File... managed) {
+        this.root = root;
+        for (var dir : managed)
+            manage(dir);
+    }
+
+    public File root() {
+        return this.root;
+    }
+
+    /** Allows files under the given directory to be replaced with links to blobs. */
+    public void manage(File dir) {
+        this.managed.add(dir.getAbsoluteFile().toPath().normalize());
+    }
+
+    /**
+     * Moves the given output into the store, replacing it with a link to the blob. If it is a directory, every file
+     * inside it is stored.
+     *
+     * @param output The file or directory
+     */
+    public void store(File output) {
+        if (!this.supported || output == null || !isManaged(output))
+            return;
+
+        try {
+            if (output.isDirectory()) {
+                try (Stream<Path> walk = Files.walk(output.toPath())) {
+                    for (var itr = walk.filter(Files::isRegularFile).iterator(); itr.hasNext(); )
+                        storeFile(itr.next());
+                }
+            } else if (output.isFile()) {
+                storeFile(output.toPath());
+            }
+        } catch (IOException e) {
+            Util.sneak(e);
+        }
+    }
+
+    private void storeFile(Path path) throws IOException {
+        var name = path.getFileName().toString();
+        // Sidecars and in-flight files are tiny and constantly rewritten
+        if (name.endsWith(".cache") || name.endsWith(".lock") || name.endsWith(".tmp") || Files.size(path) == 0)
+            return;
+
+        // Already a link, most likely to one of our blobs. This keeps repeated runs from hashing everything again.
+        var links = links(path);
+        if (links < 0 || links > 1)
+            return;
+
+        var hash = Util.hash(HashFunction.sha256(), path.toFile());
+        var blob = blob(hash).toPath();
+
+        try (var _ = FileLocks.lock(new File(this.root, "index.lock"))) {
+            if (!Files.exists(blob)) {
+                FileUtils.ensureParent(blob.toFile());
+                Files.createLink(blob, path);
+            } else if (!Files.isSameFile(blob, path)) {
+                var tmp = path.resolveSibling(name + '.' + ProcessHandle.current().pid() + ".blob.tmp");
+                try {
+                    Files.deleteIfExists(tmp);
+                    Files.createLink(tmp, blob);
+                    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+            }
+            // Shared by every link, including blobs stored before they were made read only
+            if (Files.isWritable(blob))
+                blob.toFile().setReadOnly();
+
+            var refs = refs(blob);
+            if (refs.add(path.toAbsolutePath().toString()))
+                writeRefs(blob, refs);
+        } catch (FileSystemException e) {
+            // Most likely the output is on a different file system than the store, which is fine. Leave it as is.
+            LOGGER.debug("Could not link " + path + " to blob " + hash + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Breaks the link between an output and its blob, so it can be safely written to in place.
+     * This only unlinks files that are shared, anything else is left for the task to deal with. Files that were left
+     * read only by a blob that has since been removed are made writable again.
+     *
+     * @param output The file or directory about to be rewritten
+     */
+    public void detach(File output) {
+        if (!this.supported || output == null || !output.exists() || !isManaged(output))
+            return;
+
+        try {
+            if (output.isDirectory()) {
+                try (Stream<Path> walk = Files.walk(output.toPath())) {
+                    for (var itr = walk.filter(Files::isRegularFile).iterator(); itr.hasNext(); )
+                        detachFile(itr.next());
+                }
+            } else {
+                detachFile(output.toPath());
+            }
+        } catch (IOException e) {
+            Util.sneak(e);
+        }
+    }
+
+    private void detachFile(Path path) throws IOException {
+        if (links(path) > 1)
+            Files.delete(path);
+        else
+            // Even if we can already write to it, such as when running as root, so it isn't left read only for others
+            path.toFile().setWritable(true);
+    }
+
+    /**
+     * Counts the live references to a blob.
+     *
+     * @param hash The sha256 of the blob
+     * @return The number of outputs currently linked to it
+     */
+    public int references(String hash) {
+        var blob = blob(hash).toPath();
+        if (!Files.exists(blob))
+            return 0;
+
+        try (var _ = FileLocks.lock(new File(this.root, "index.lock"))) {
+            return live(blob, refs(blob)).size();
+        } catch (IOException e) {
+            return Util.sneak(e);
+        }
+    }
+
+    /**
+     * Prunes dead references from the index, and deletes every blob that is no longer referenced.
+     *
+     * @return The number of bytes freed
+     */
+    public long collect() {
+        if (!this.root.exists())
+            return 0;
+
+        long freed = 0;
+        try (var _ = FileLocks.lock(new File(this.root, "index.lock"))) {
+            var blobs = new ArrayList<Path>();
+            try (Stream<Path> walk = Files.walk(this.root.toPath(), 2)) {
+                walk.filter(p -> p.getNameCount() - this.root.toPath().getNameCount() == 2)
+                    .filter(p -> p.getFileName().toString().length() == 64)
+                    .forEach(blobs::add);
+            }
+
+            for (var blob : blobs) {
+                var refs = refs(blob);
+                var live = live(blob, refs);
+                if (live.isEmpty()) {
+                    freed += Files.size(blob);
+                    Files.delete(blob);
+                    Files.deleteIfExists(refsFile(blob));
+                } else if (live.size() != refs.size()) {
+                    writeRefs(blob, live);
+                }
+            }
+        } catch (IOException e) {
+            return Util.sneak(e);
+        }
+
+        return freed;
+    }
+
+    private LinkedHashSet<String> live(Path blob, LinkedHashSet<String> refs) throws IOException {
+        var ret = new LinkedHashSet<String>();
+        for (var ref : refs) {
+            var path = Path.of(ref);
+            if (Files.exists(path) && Files.isSameFile(blob, path))
+                ret.add(ref);
+        }
+        return ret;
+    }
+
+    private LinkedHashSet<String> refs(Path blob) throws IOException {
+        var file = refsFile(blob);
+        return Files.exists(file)
+            ? new LinkedHashSet<>(Files.readAllLines(file, StandardCharsets.UTF_8))
+            : new LinkedHashSet<>();
+    }
+
+    private void writeRefs(Path blob, LinkedHashSet<String> refs) throws IOException {
+        Util.publish(refsFile(blob).toFile(), tmp -> Files.write(tmp.toPath(), refs, StandardCharsets.UTF_8));
+    }
+
+    private static Path refsFile(Path blob) {
+        return blob.resolveSibling(blob.getFileName() + REFS);
+    }
+
+    private File blob(String hash) {
+        return new File(this.root, hash.substring(0, 2) + '/' + hash);
+    }
+
+    private boolean isManaged(File file) {
+        var path = file.getAbsoluteFile().toPath().normalize();
+        if (path.startsWith(this.root.getAbsoluteFile().toPath().normalize()))
+            return false;
+        for (var dir : this.managed) {
+            if (path.startsWith(dir))
+                return true;
+        }
+        return false;
+    }
+
+    /** @return The number of hardlinks to the file, or -1 if the file system can't tell us */
+    private int links(Path path) throws IOException {
+        try {
+            return (Integer) Files.getAttribute(path, "unix:nlink");
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            // Without link counts we can't tell shared outputs apart, so it's not safe to link anything
+            if (this.supported) {
+                LOGGER.warn("File system does not report hardlink counts, disabling output deduplication");
+                this.supported = false;
+            }
+            return -1;
+        }
+    }
+}
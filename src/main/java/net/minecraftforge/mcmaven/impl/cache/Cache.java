@@ -10,7 +10,7 @@ import java.io.File;
 import java.util.Map;
 
 /** Represents the cache for this tool. */
-public record Cache(File root, File localCache, JDKCache jdks, MavenCache maven, MinecraftMavenCache minecraft) {
+public record Cache(File root, File localCache, JDKCache jdks, MavenCache maven, MinecraftMavenCache minecraft, BlobStore blobs, AccessIndex access) {
     /**
      * Makes a new cache with the given root and JDK cache directories.
      *
@@ -26,7 +26,9 @@ public record Cache(File root, File localCache, JDKCache jdks, MavenCache maven,
             localCache,
             new JDKCache(jdkCache),
             new MavenCache(Constants.FORGE_NAME, Constants.FORGE_MAVEN, root, foreignRepositories),
-            new MinecraftMavenCache(root)
+            new MinecraftMavenCache(root),
+            new BlobStore(new File(root, "blobs"), root, localCache),
+            new AccessIndex(root)
         );
     }
 }
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.minecraftforge.mcmaven.impl.util.FileLocks;
+import net.minecraftforge.mcmaven.impl.util.Util;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+/**
+ * Evicts the least recently used entries from the cache until it fits in a size budget.
+ * <p>
+ * An entry is a task output, found by its {@code .cache} sidecar, or a file downloaded into {@code maven/}. Evicting
+ * one deletes it along with its sidecars, so the next run that needs it simply has a cache miss. Entries used by
+ * this process, or locked by another process that is currently building or using them, are never evicted.
+ * <p>
+ * JDKs and the {@link BlobStore} are not entries themselves. Blobs are collected once their last output is evicted.
+ * Outputs linked to a blob share its contents, so those bytes are counted once, and only count as freed once every
+ * link to the blob is gone.
+ */
+public final class CacheCleaner {
+    private static final String[] SIDECARS = { ".cache", ".lock", ".md5", ".sha1", ".sha256", ".sha512" };
+
+    private final Cache cache;
+    /** Files with more than one hardlink, by their file key, as their contents are shared */
+    private final Map<Object, Linked> linked = new HashMap<>();
+
+    public CacheCleaner(Cache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Evicts entries until the cache is no larger than the budget.
+     *
+     * @param budget    The target size in bytes
+     * @param protect   Files that must not be evicted, normally everything the current run used
+     * @param dryRun    Only log what would be evicted
+     * @return The number of bytes freed
+     */
+    public long clean(long budget, Set<File> protect, boolean dryRun) {
+        var roots = new ArrayList<File>();
+        roots.add(this.cache.root());
+        if (!under(this.cache.localCache(), this.cache.root()))
+            roots.add(this.cache.localCache());
+
+        var blobs = this.cache.blobs().root();
+        var skip = List.of(this.cache.jdks().root(), blobs);
+        long total = 0;
+        var entries = new LinkedHashMap<File, Entry>();
+        var times = this.cache.access().load();
+        this.linked.clear();
+
+        try {
+            // The store holds one link to each blob itself, which only goes away once the blob is collected
+            if (blobs.exists()) {
+                try (Stream<Path> walk = Files.walk(blobs.toPath())) {
+                    for (var itr = walk.filter(Files::isRegularFile).iterator(); itr.hasNext(); )
+                        total += this.account(itr.next(), true);
+                }
+            }
+
+            for (var root : roots) {
+                if (!root.exists())
+                    continue;
+
+                var files = new ArrayList<Path>();
+                try (Stream<Path> walk = Files.walk(root.toPath())) {
+                    walk.filter(Files::isRegularFile)
+                        .filter(p -> skip.stream().noneMatch(s -> under(p.toFile(), s)))
+                        .forEach(files::add);
+                }
+
+                var maven = new File(this.cache.root(), "maven");
+                for (var path : files) {
+                    total += this.account(path, false);
+
+                    var file = path.toFile();
+                    var name = file.getName();
+                    File owner = null;
+                    if (name.endsWith(".cache"))
+                        owner = new File(file.getParentFile(), name.substring(0, name.length() - 6));
+                    else if (under(file, maven) && !isSidecar(name) && !name.endsWith(".tmp"))
+                        owner = file;
+
+                    if (owner == null || !owner.exists() || entries.containsKey(owner))
+                        continue;
+
+                    var time = times.get(owner.getAbsoluteFile());
+                    var keys = new ArrayList<Object>();
+                    entries.put(owner, new Entry(owner, this.size(owner, keys), keys, time != null ? time : owner.lastModified()));
+                }
+            }
+        } catch (IOException e) {
+            return Util.sneak(e);
+        }
+
+        LOGGER.info("Cache size: " + format(total) + ", budget: " + format(budget));
+        if (total <= budget)
+            return 0;
+
+        var protectedFiles = new HashSet<File>();
+        for (var file : protect)
+            protectedFiles.add(file.getAbsoluteFile());
+
+        var sorted = new ArrayList<>(entries.values());
+        sorted.sort(Comparator.comparingLong(Entry::lastAccess));
+
+        // Estimated until the blob store is collected, as shared blobs are only freed along with their last link
+        long freed = 0;
+        long unique = 0;
+        var evicted = new ArrayList<File>();
+        LOGGER.push();
+        for (var entry : sorted) {
+            if (total - freed <= budget)
+                break;
+            if (protectedFiles.contains(entry.file().getAbsoluteFile()))
+                continue;
+
+            if (dryRun) {
+                var size = this.evict(entry);
+                LOGGER.info("Would evict " + entry.file().getAbsolutePath() + " (" + format(size) + ')');
+                freed += size;
+                continue;
+            }
+
+            // If someone else is building or using this right now, leave it
+            try (var lock = FileLocks.tryLock(FileLocks.lockFile(entry.file()))) {
+                if (lock == null)
+                    continue;
+
+                var size = this.evict(entry);
+                LOGGER.debug("Evicting " + entry.file().getAbsolutePath() + " (" + format(size) + ')');
+                delete(entry.file());
+                freed += size;
+                unique += entry.size();
+                evicted.add(entry.file());
+            }
+        }
+        LOGGER.pop();
+
+        if (!dryRun) {
+            this.cache.access().forget(evicted);
+            freed = unique + this.cache.blobs().collect();
+        }
+
+        LOGGER.info((dryRun ? "Would free " : "Freed ") + format(freed) + " from " + (dryRun ? "" : evicted.size() + " ") + "entries");
+        return freed;
+    }
+
+    private static void delete(File file) {
+        // Sidecars first, so an interrupted eviction looks like a cache miss rather than a valid entry
+        for (var ext : SIDECARS) {
+            if (!".lock".equals(ext))
+                new File(file.getAbsolutePath() + ext).delete();
+        }
+
+        if (file.isDirectory())
+            Util.attemptCleanupDirectory(file);
+        file.delete();
+    }
+
+    /** @return The bytes only this entry uses, files shared with a blob are added to {@code keys} instead */
+    private long size(File file, List<Object> keys) throws IOException {
+        long ret = 0;
+        for (var ext : SIDECARS) {
+            var sidecar = new File(file.getAbsolutePath() + ext);
+            if (sidecar.isFile())
+                ret += sidecar.length();
+        }
+
+        if (!file.isDirectory())
+            return ret + this.unique(file.toPath(), keys);
+
+        try (Stream<Path> walk = Files.walk(file.toPath())) {
+            for (var itr = walk.filter(Files::isRegularFile).iterator(); itr.hasNext(); )
+                ret += this.unique(itr.next(), keys);
+        }
+        return ret;
+    }
+
+    private long unique(Path path, List<Object> keys) throws IOException {
+        var key = linkKey(path);
+        if (key == null)
+            return Files.size(path);
+        keys.add(key);
+        return 0;
+    }
+
+    /**
+     * Counts a file towards the size of the cache. Files with more than one hardlink are only counted the first time
+     * one of their links is seen.
+     *
+     * @param blob If the file is a blob, whose own link only goes away once it is collected
+     * @return The number of bytes the file adds to the cache
+     */
+    private long account(Path path, boolean blob) throws IOException {
+        var key = linkKey(path);
+        if (key == null)
+            return Files.size(path);
+        if (this.linked.containsKey(key))
+            return 0;
+
+        // Links outside of the cache, such as in the output repository, keep it alive no matter what we evict
+        int links = (Integer) Files.getAttribute(path, "unix:nlink");
+        var size = Files.size(path);
+        this.linked.put(key, new Linked(size, blob ? links - 1 : links));
+        return size;
+    }
+
+    /** @return The bytes evicting the entry frees, once the blob store is collected */
+    private long evict(Entry entry) {
+        long ret = entry.size();
+        for (var key : entry.linked()) {
+            var linked = this.linked.get(key);
+            if (linked != null && --linked.links == 0)
+                ret += linked.size;
+        }
+        return ret;
+    }
+
+    /** @return The file key of a file with more than one hardlink, or {@code null} if its contents are its own */
+    private static @Nullable Object linkKey(Path path) throws IOException {
+        try {
+            var links = (Integer) Files.getAttribute(path, "unix:nlink");
+            if (links <= 1)
+                return null;
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            return null;
+        }
+        return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    }
+
+    private static boolean isSidecar(String name) {
+        for (var ext : SIDECARS) {
+            if (name.endsWith(ext))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean under(File file, File dir) {
+        return file.getAbsoluteFile().toPath().normalize().startsWith(dir.getAbsoluteFile().toPath().normalize());
+    }
+
+    /**
+     * Parses a size such as {@code 500M} or {@code 20G}. Units are powers of 1024, and a plain number is in bytes.
+     *
+     * @param value The size
+     * @return The size in bytes
+     */
+    public static long parseSize(String value) {
+        var str = value.trim().toUpperCase(Locale.ROOT);
+        if (str.endsWith("B"))
+            str = str.substring(0, str.length() - 1);
+
+        int shift = 0;
+        if (!str.isEmpty()) {
+            shift = switch (str.charAt(str.length() - 1)) {
+                case 'K' -> 10;
+                case 'M' -> 20;
+                case 'G' -> 30;
+                case 'T' -> 40;
+                default -> 0;
+            };
+        }
+        if (shift != 0)
+            str = str.substring(0, str.length() - 1);
+
+        try {
+            return Long.parseLong(str.trim()) << shift;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid size: " + value, e);
+        }
+    }
+
+    private static String format(long bytes) {
+        if (bytes < 1024)
+            return bytes + "B";
+        int exp = (63 - Long.numberOfLeadingZeros(bytes)) / 10;
+        return String.format(Locale.ROOT, "%.1f%s", bytes / (double) (1L << (exp * 10)), "KMGTPE".charAt(exp - 1));
+    }
+
+    private record Entry(File file, long size, List<Object> linked, long lastAccess) { }
+
+    private static final class Linked {
+        private final long size;
+        private int links;
+
+        private Linked(long size, int links) {
+            this.size = size;
+            this.links = links;
+        }
+    }
+}
@@ -5,26 +5,48 @@
 package net.minecraftforge.mcmaven.impl.cache;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.Nullable;
 
 import net.minecraftforge.java_provisioner.api.JavaInstall;
 import net.minecraftforge.java_provisioner.api.JavaLocator;
 import net.minecraftforge.java_provisioner.api.JavaProvisioner;
 import net.minecraftforge.mcmaven.impl.Mavenizer;
+import net.minecraftforge.mcmaven.impl.util.FileLocks;
+import net.minecraftforge.util.data.json.JsonData;
+import net.minecraftforge.util.file.FileUtils;
 import net.minecraftforge.util.logging.Logger;
 
 import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
 
-/** Represents the JDK cache for this tool. */
+/**
+ * Represents the JDK cache for this tool.
+ * <p>
+ * Lookups are safe to make from multiple threads, and each major version is only provisioned once. Provisioning also
+ * holds a file lock in the cache directory, so parallel Mavenizer processes sharing a cache wait on a single download.
+ * <p>
+ * Scanning the system for installed JDKs is slow, so the results are saved to {@value #INDEX} and reused as long as
+ * every listed home directory still has the same modified time. If a requested version isn't in the index, a full
+ * scan is done before provisioning.
+ */
 public final class JDKCache {
+    private static final String INDEX = "located.json";
+
     private Map<JavaLocator, List<String>> attemptedLocate = null;
+    private boolean loadedIndex = false;
     private final File root;
-    private final Map<Integer, File> jdks = new HashMap<>();
+    private final Map<Integer, File> jdks = new ConcurrentHashMap<>();
+    private final Map<Integer, Object> locks = new ConcurrentHashMap<>();
     private final JavaProvisioner disco;
 
     /**
@@ -49,7 +71,6 @@ public final class JDKCache {
         }
     }
 
-    // TODO: [MCMavenizer][JDKCache] Make this thread safe. If this method is accessed concurrently, the same JDK could be downloaded more than once.
     /**
      * Gets the JDK for the given version.
      *
@@ -57,15 +78,38 @@ public final class JDKCache {
      * @return The JDK, or {@code null} if it could not be found or downloaded
      */
     public File get(int version) throws Exception {
-        if (attemptedLocate == null)
-            attemptLocate();
-
         // check cache. stop immediately if we get a hit.
         var ret = jdks.get(version);
         if (ret != null) return ret;
 
+        // Only one thread per version gets past here, the rest wait for it and then see its result
+        synchronized (this.locks.computeIfAbsent(version, _ -> new Object())) {
+            ret = jdks.get(version);
+            if (ret != null) return ret;
+
+            loadIndex();
+            ret = jdks.get(version);
+            if (ret != null) return ret;
+
+            attemptLocate();
+            ret = jdks.get(version);
+            if (ret != null) return ret;
+
+            try (var _ = FileLocks.lock(new File(this.root, "jdk-" + version + ".lock"))) {
+                // Another process may have provisioned it while we were waiting on the lock
+                ret = findProvisioned(version);
+                if (ret == null)
+                    ret = provision(version);
+            }
+
+            jdks.put(version, ret);
+            return ret;
+        }
+    }
+
+    private File provision(int version) throws Exception {
         try {
-            ret = disco.provision(version).home(); // Implementation detail, we only download jdks, so no need to check here
+            return disco.provision(version).home(); // Implementation detail, we only download jdks, so no need to check here
         } catch (Exception e) {
             LOGGER.error("Failed to provision JDK " + version);
             disco.logOutput().forEach(LOGGER::error);
@@ -82,19 +126,47 @@ public final class JDKCache {
             }
             throw e;
         }
+    }
+
+    private @Nullable File findProvisioned(int version) {
+        for (var install : this.disco.findAll()) {
+            if (install.isJdk() && install.majorVersion() == version)
+                return install.home();
+        }
+        return null;
+    }
+
+    private synchronized void loadIndex() {
+        if (loadedIndex) return;
+        loadedIndex = true;
+
+        var file = new File(this.root, INDEX);
+        if (!file.exists())
+            return;
+
+        Located[] index;
+        try {
+            index = JsonData.fromJson(file, Located[].class);
+        } catch (Exception e) {
+            LOGGER.debug("Failed to read JDK index, it will be rebuilt: " + e.getMessage());
+            return;
+        }
 
-        // not sure how this would ever hit. but just in case...
-        var old = jdks.putIfAbsent(version, ret);
-        if (old != null) {
-            LOGGER.error("JDKCache: Downloaded JDK " + version + " is replacing an existing download! It was probably downloaded by another thread.");
-            LOGGER.error("JDKCache: Old JDK: " + old);
-            // TODO [Mavenizer][Provisioner] Properly account for parallel Mavenizer instances
+        if (index == null)
+            return;
+
+        // If anything changed, throw the whole thing out, something was installed or removed
+        for (var entry : index) {
+            var home = new File(entry.home);
+            if (!home.isDirectory() || home.lastModified() != entry.modified)
+                return;
         }
 
-        return ret;
+        for (var entry : index)
+            this.jdks.putIfAbsent(entry.version, new File(entry.home));
     }
 
-    private void attemptLocate() {
+    private synchronized void attemptLocate() {
         if (attemptedLocate != null) return;
         attemptedLocate = Map.of();
 
@@ -122,10 +194,48 @@ public final class JDKCache {
         installs.removeIf(install -> !seen.add(install.home()));
 
         Collections.sort(installs);
+        var found = new TreeMap<Integer, File>();
         for (JavaInstall install : installs) {
             if (!install.isJdk() || install.majorVersion() <= 0)
                 continue;
-            this.jdks.putIfAbsent(install.majorVersion(), install.home());
+            found.putIfAbsent(install.majorVersion(), install.home());
+        }
+
+        // A full scan is authoritative, so it wins over anything we loaded from the index
+        this.jdks.putAll(found);
+        saveIndex(found);
+    }
+
+    private void saveIndex(Map<Integer, File> found) {
+        var index = new ArrayList<Located>(found.size());
+        for (var entry : found.entrySet()) {
+            var home = entry.getValue().getAbsoluteFile();
+            index.add(new Located(entry.getKey(), home.getAbsolutePath(), home.lastModified()));
+        }
+
+        // Write to a temp file and move it in place, as other processes may be reading it
+        var file = new File(this.root, INDEX);
+        var tmp = new File(this.root, INDEX + '.' + ProcessHandle.current().pid() + ".tmp");
+        try {
+            FileUtils.ensureParent(file);
+            JsonData.toJson(index.toArray(Located[]::new), tmp);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            // Only an optimization, so don't fail the build over it
+            LOGGER.debug("Failed to write JDK index: " + e.getMessage());
+            tmp.delete();
+        }
+    }
+
+    private static final class Located {
+        int version;
+        String home;
+        long modified;
+
+        private Located(int version, String home, long modified) {
+            this.version = version;
+            this.home = home;
+            this.modified = modified;
         }
     }
 }
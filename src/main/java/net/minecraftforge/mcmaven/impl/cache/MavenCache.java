@@ -7,6 +7,10 @@ package net.minecraftforge.mcmaven.impl.cache;
 import net.minecraftforge.mcmaven.impl.Mavenizer;
 import net.minecraftforge.mcmaven.impl.util.Artifact;
 import net.minecraftforge.mcmaven.impl.util.ComparableVersion;
+import net.minecraftforge.mcmaven.impl.util.FileLocks;
+import net.minecraftforge.mcmaven.impl.util.JfrEvents;
+import net.minecraftforge.mcmaven.impl.util.Metrics;
+import net.minecraftforge.mcmaven.impl.util.Trace;
 import net.minecraftforge.util.download.DownloadUtils;
 import net.minecraftforge.util.hash.HashFunction;
 import net.minecraftforge.mcmaven.impl.util.Util;
@@ -193,6 +197,33 @@ public sealed class MavenCache permits MinecraftMavenCache {
         }
 
 
+        var event = new JfrEvents.Download();
+        event.begin();
+        try (var _ = FileLocks.lock(FileLocks.lockFile(target));
+             var span = Trace.begin("download", path)) {
+            span.arg("repo", this.repo);
+            var modified = target.lastModified();
+            var ret = download(changing, path, target);
+            span.arg("bytes", ret.length());
+
+            var hit = modified != 0 && modified == ret.lastModified();
+            if (!hit)
+                Metrics.count(Metrics.DOWNLOADED_BYTES, ret.length(), "repository", this.repo);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.repository = this.repo;
+                event.path = path;
+                event.bytes = ret.length();
+                event.hit = hit;
+                event.commit();
+            }
+            return ret;
+        }
+    }
+
+    private File download(boolean changing, String path, File target) throws IOException {
+        Mavenizer.accessed(target);
         if (target.exists()) {
             boolean invalidHash = false;
 
@@ -242,6 +273,7 @@ public sealed class MavenCache permits MinecraftMavenCache {
 
                     try {
                         var chash = func.hash(target);
+                        Metrics.count(Metrics.HASHED_BYTES, target.length());
                         if (!chash.equals(rhash)) {
                             LOGGER.error("Outdated cached file: " + target.getAbsolutePath());
                             LOGGER.error("Expected: " + rhash);
@@ -266,8 +298,10 @@ public sealed class MavenCache permits MinecraftMavenCache {
 
         Mavenizer.assertNotCacheOnly();
         Mavenizer.assertOnline();
-        downloadFile(target, path);
+        Trace.annotate("cache", "miss");
+        Util.publish(target, tmp -> downloadFile(tmp, path));
         HashUtils.updateHash(target, knownHashes);
+        Metrics.count(Metrics.HASHED_BYTES, target.length() * knownHashes.length);
         return target;
     }
 
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.List;
+
+import net.minecraftforge.mcmaven.impl.util.TrackedHashStore;
+import net.minecraftforge.mcmaven.impl.util.Util;
+import net.minecraftforge.util.hash.HashStore;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+/**
+ * A shared cache of task outputs, so a cold machine can download things like a decompiled jar instead of making it.
+ * <p>
+ * The key for an output is the sha256 of its name and the inputs given to its {@link HashStore}. Files are named
+ * relative to the cache directories, so machines that keep their caches in different places still share keys. The
+ * protocol is
+ * plain HTTP: {@code GET <url>/<key>} returns the file or a 404, and {@code PUT <url>/<key>} stores it. See
+ * {@link RemoteCacheServer} for a simple implementation backed by a directory.
+ * <p>
+ * Outputs are fetched on a cache miss, before the task does any work. If it isn't available, the output is uploaded
+ * once the task that owns it has succeeded. Only single files are shared, folder outputs always run locally: they are
+ * never fetched or uploaded, so the server can't have an entry for one.
+ * Failing to talk to the server is never fatal, it is logged and the task runs as normal.
+ */
+public final class RemoteCache {
+    // Bump this if the format of the keys ever changes
+    private static final String CODEVER = "2";
+    private static final ThreadLocal<Deque<Pending>> PENDING = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final String url;
+    private final boolean push;
+    private final HttpClient client;
+    private final List<Path> roots = new ArrayList<>();
+
+    /**
+     * @param url   The base URL of the cache
+     * @param push  If outputs built locally should be uploaded
+     * @param roots The cache directories, inputs in them are named by their path in them
+     */
+    public RemoteCache(String url, boolean push, File... roots) {
+        this.url = url.endsWith("/") ? url : url + '/';
+        this.push = push;
+        for (var root : roots)
+            this.roots.add(root.getAbsoluteFile().toPath().normalize());
+        this.client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    }
+
+    /**
+     * Computes the key for an output. The parent directory is included because many tasks use the same file name,
+     * and it is normally the version or step name.
+     */
+    public String key(File output, TrackedHashStore cache) {
+        var parent = output.getAbsoluteFile().getParentFile();
+        var name = (parent == null ? "" : parent.getName() + '/') + output.getName();
+        var data = new StringBuilder().append(CODEVER).append('\n').append(name).append('\n');
+        cache.hashes(this::name).forEach((key, hash) -> data.append(key).append(' ').append(hash).append('\n'));
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            return Util.sneak(e);
+        }
+    }
+
+    /** Names a file by its path in the innermost cache directory it is in */
+    private String name(File file) {
+        var path = file.getAbsoluteFile().toPath().normalize();
+        int index = -1;
+        for (int x = 0; x < this.roots.size(); x++) {
+            var root = this.roots.get(x);
+            if (path.startsWith(root) && (index == -1 || root.getNameCount() > this.roots.get(index).getNameCount()))
+                index = x;
+        }
+        if (index == -1)
+            return path.toString().replace('\\', '/');
+        return "<" + index + ">/" + this.roots.get(index).relativize(path).toString().replace('\\', '/');
+    }
+
+    /**
+     * Attempts to download an output. If it isn't available, and we are pushing, the output is remembered so
+     * {@link #complete(int, boolean)} can upload it.
+     *
+     * @return If the output was downloaded, always {@code false} for folder outputs
+     */
+    public boolean fetch(File output, TrackedHashStore cache) {
+        // Don't replace a folder with a single file, and don't bother remembering it as we'd never upload it
+        if (output.isDirectory())
+            return false;
+
+        var key = key(output, cache);
+        try {
+            var request = HttpRequest.newBuilder(URI.create(this.url + key)).GET().build();
+            var response = this.client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (var body = response.body()) {
+                if (response.statusCode() == 200) {
+                    Util.publish(output, tmp -> Files.copy(body, tmp.toPath(), StandardCopyOption.REPLACE_EXISTING));
+                    LOGGER.info("Downloaded from remote cache: " + output.getName());
+                    return true;
+                }
+            }
+
+            if (response.statusCode() != 404)
+                LOGGER.warn("Remote cache returned " + response.statusCode() + " for " + output.getName());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to read from remote cache: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        if (this.push)
+            PENDING.get().push(new Pending(this, output, key));
+        return false;
+    }
+
+    private void upload(File output, String key) {
+        // Folder outputs that didn't exist yet when we checked the cache
+        if (!output.isFile())
+            return;
+
+        try {
+            var request = HttpRequest.newBuilder(URI.create(this.url + key))
+                .PUT(HttpRequest.BodyPublishers.ofFile(output.toPath()))
+                .build();
+            var response = this.client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() / 100 != 2)
+                LOGGER.warn("Remote cache returned " + response.statusCode() + " when uploading " + output.getName());
+            else
+                LOGGER.debug("Uploaded to remote cache: " + output.getName());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to upload to remote cache: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** @return A marker for the outputs this thread is waiting to upload */
+    public static int mark() {
+        return PENDING.get().size();
+    }
+
+    /**
+     * Finishes every output this thread has missed since the given marker.
+     *
+     * @param mark    The value of {@link #mark()} from before the task ran
+     * @param success If the task succeeded, and so its outputs should be uploaded
+     */
+    public static void complete(int mark, boolean success) {
+        var pending = PENDING.get();
+        while (pending.size() > mark) {
+            var entry = pending.pop();
+            if (success)
+                entry.cache().upload(entry.output(), entry.key());
+        }
+    }
+
+    private record Pending(RemoteCache cache, File output, String key) { }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import net.minecraftforge.mcmaven.impl.util.Util;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+/**
+ * A minimal {@link RemoteCache} server that stores entries as files in a directory.
+ * Meant for testing, or for small teams sharing a single machine. It does no authentication or eviction.
+ */
+public final class RemoteCacheServer {
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}");
+
+    private final File root;
+    private final HttpServer server;
+
+    /**
+     * @param root The directory to store entries in
+     * @param port The port to listen on, or 0 to pick a free one
+     */
+    public RemoteCacheServer(File root, int port) throws IOException {
+        this.root = root;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public int port() {
+        return this.server.getAddress().getPort();
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    public void stop() {
+        this.server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            var path = exchange.getRequestURI().getPath();
+            var key = path.substring(path.lastIndexOf('/') + 1);
+            if (!KEY.matcher(key).matches()) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            var file = new File(this.root, key.substring(0, 2) + '/' + key);
+            switch (exchange.getRequestMethod()) {
+                case "GET", "HEAD" -> {
+                    if (!file.isFile()) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+
+                    var head = "HEAD".equals(exchange.getRequestMethod());
+                    exchange.sendResponseHeaders(200, head ? -1 : file.length());
+                    if (!head) {
+                        try (var os = exchange.getResponseBody()) {
+                            Files.copy(file.toPath(), os);
+                        }
+                    }
+                }
+                case "PUT" -> {
+                    try (var is = exchange.getRequestBody()) {
+                        Util.publish(file, tmp -> Files.copy(is, tmp.toPath(), StandardCopyOption.REPLACE_EXISTING));
+                    }
+                    LOGGER.debug("Stored " + key);
+                    exchange.sendResponseHeaders(201, -1);
+                }
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+}
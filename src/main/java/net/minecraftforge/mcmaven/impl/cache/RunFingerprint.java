@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.minecraftforge.mcmaven.impl.util.Util;
+import net.minecraftforge.util.hash.HashFunction;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+/**
+ * A fingerprint of an entire run, so that repeating the same command can skip building the task graph.
+ * <p>
+ * It records the Mavenizer jar, the command line, the user supplied input files, and every file the run produced.
+ * Files are compared by size and modified time, and only hashed if the time changed, so checking a warm run is a
+ * handful of stat calls. If anything differs, the run continues as normal and every task checks its own cache.
+ */
+public final class RunFingerprint {
+    private final File file;
+    private final String tool;
+    private final List<String> args;
+    private final Collection<File> inputs;
+    private final Set<File> outputs = ConcurrentHashMap.newKeySet();
+
+    RunFingerprint(File file, String tool, List<String> args, Collection<File> inputs) {
+        this.file = file;
+        this.tool = tool;
+        this.args = args;
+        this.inputs = inputs;
+    }
+
+    /**
+     * Creates the fingerprint for a run.
+     *
+     * @param root   The cache root
+     * @param args   The full command line
+     * @param inputs Files given by the user which the run reads
+     * @return The fingerprint, or {@code null} if we are not running from a jar and so can't tell if the code changed
+     */
+    public static @Nullable RunFingerprint of(File root, String[] args, Collection<File> inputs) {
+        var tool = toolStamp();
+        if (tool == null)
+            return null;
+
+        var argList = List.of(args);
+        var key = sha256(System.getProperty("user.dir") + '\n' + String.join("\n", argList));
+        return new RunFingerprint(new File(root, "fingerprints/" + key + ".json"), tool, argList, inputs);
+    }
+
+    /** Records a file produced by this run, which must be unchanged for a later run to be skipped. */
+    public void output(File file) {
+        this.outputs.add(file.getAbsoluteFile());
+    }
+
+    /** @return If the last successful run with the same command is still valid */
+    public boolean isUpToDate() {
+        if (!this.file.exists())
+            return false;
+
+        try {
+            var data = Util.GSON.fromJson(Files.readString(this.file.toPath(), StandardCharsets.UTF_8), Data.class);
+            if (data == null || !this.tool.equals(data.tool) || !this.args.equals(data.args))
+                return false;
+
+            var expectedInputs = new TreeMap<String, Stamp>();
+            for (var input : this.inputs)
+                expectedInputs.put(input.getAbsolutePath(), null);
+            if (!expectedInputs.keySet().equals(data.inputs.keySet()))
+                return false;
+
+            return matches(data.inputs) && matches(data.outputs);
+        } catch (Exception e) {
+            LOGGER.debug("Failed to read run fingerprint: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean matches(Map<String, Stamp> stamps) {
+        for (var entry : stamps.entrySet()) {
+            var file = new File(entry.getKey());
+            var stamp = entry.getValue();
+            if (!file.isFile() || file.length() != stamp.size) {
+                LOGGER.debug("Fingerprint changed: " + file.getAbsolutePath());
+                return false;
+            }
+
+            if (file.lastModified() != stamp.modified && !Util.hash(HashFunction.sha1(), file).equals(stamp.sha1)) {
+                LOGGER.debug("Fingerprint changed: " + file.getAbsolutePath());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Deletes the saved fingerprint, so a run that fails part way is never considered up to date. */
+    public void invalidate() {
+        this.file.delete();
+    }
+
+    /** Saves the fingerprint, should only be called once the run has succeeded. */
+    public void save() {
+        var data = new Data();
+        data.tool = this.tool;
+        data.args = this.args;
+        for (var input : this.inputs)
+            data.inputs.put(input.getAbsolutePath(), stamp(input));
+        for (var output : this.outputs) {
+            if (output.isFile())
+                data.outputs.put(output.getAbsolutePath(), stamp(output));
+        }
+
+        try {
+            Util.publish(this.file, tmp -> Files.writeString(tmp.toPath(), Util.GSON.toJson(data), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            LOGGER.warn("Failed to save run fingerprint: " + e.getMessage());
+        }
+    }
+
+    private static Stamp stamp(File file) {
+        var ret = new Stamp();
+        ret.size = file.length();
+        ret.modified = file.lastModified();
+        ret.sha1 = Util.hash(HashFunction.sha1(), file);
+        return ret;
+    }
+
+    private static @Nullable String toolStamp() {
+        try {
+            var source = RunFingerprint.class.getProtectionDomain().getCodeSource();
+            if (source == null)
+                return null;
+
+            var jar = new File(source.getLocation().toURI());
+            if (!jar.isFile())
+                return null;
+
+            return jar.getName() + ':' + jar.length() + ':' + jar.lastModified();
+        } catch (URISyntaxException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private static String sha256(String data) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(data.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            return Util.sneak(e);
+        }
+    }
+
+    private static final class Data {
+        String tool;
+        List<String> args = new ArrayList<>();
+        Map<String, Stamp> inputs = new TreeMap<>();
+        Map<String, Stamp> outputs = new TreeMap<>();
+    }
+
+    private static final class Stamp {
+        long size;
+        long modified;
+        String sha1;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.google.gson.stream.JsonWriter;
+
+import net.minecraftforge.mcmaven.impl.util.Util;
+
+/**
+ * Writes {@link GradleModule} files and the {@code .variants} files they are merged from straight to a
+ * {@link JsonWriter}, instead of going through Gson's reflection and object trees.
+ * <p>
+ * The output is the same as Gson's pretty printing: fields in declaration order, {@code null} fields left out, two
+ * space indenting and HTML safe strings. Anything we don't know the type of, like a custom attribute value, is still
+ * handed to Gson.
+ */
+public final class GradleModuleWriter {
+    private GradleModuleWriter() { }
+
+    /** @return The variants as they are written to a {@code .variants} file */
+    public static String toJson(GradleModule.Variant[] variants) {
+        var out = new StringWriter();
+        try (var writer = writer(out)) {
+            variants(writer, variants);
+        } catch (IOException e) {
+            Util.sneak(e);
+        }
+        return out.toString();
+    }
+
+    public static void write(GradleModule.Variant[] variants, File file) throws IOException {
+        Util.publish(file, tmp -> {
+            try (var writer = writer(new OutputStreamWriter(Files.newOutputStream(tmp.toPath()), StandardCharsets.UTF_8))) {
+                variants(writer, variants);
+            }
+        });
+    }
+
+    public static void write(GradleModule module, File file) throws IOException {
+        Util.publish(file, tmp -> {
+            try (var writer = writer(new OutputStreamWriter(Files.newOutputStream(tmp.toPath()), StandardCharsets.UTF_8))) {
+                module(writer, module);
+            }
+        });
+    }
+
+    private static JsonWriter writer(Writer out) {
+        var writer = new JsonWriter(out);
+        writer.setIndent("  ");
+        writer.setHtmlSafe(true);
+        writer.setSerializeNulls(false);
+        return writer;
+    }
+
+    private static void module(JsonWriter writer, GradleModule module) throws IOException {
+        writer.beginObject();
+        writer.name("formatVersion").value(module.formatVersion);
+        if (module.component != null) {
+            var component = module.component;
+            writer.name("component").beginObject();
+            writer.name("group").value(component.group);
+            writer.name("module").value(component.module);
+            writer.name("version").value(component.version);
+            writer.name("url").value(component.url);
+            writer.endObject();
+        }
+        if (module.createdBy != null) {
+            writer.name("createdBy").beginObject();
+            if (module.createdBy.gradle != null) {
+                var gradle = module.createdBy.gradle;
+                writer.name("gradle").beginObject();
+                writer.name("version").value(gradle.version);
+                writer.name("buildId").value(gradle.buildId);
+                writer.endObject();
+            }
+            writer.endObject();
+        }
+        if (module.variants != null) {
+            writer.name("variants");
+            variants(writer, module.variants.toArray(GradleModule.Variant[]::new));
+        }
+        writer.endObject();
+    }
+
+    private static void variants(JsonWriter writer, GradleModule.Variant[] variants) throws IOException {
+        writer.beginArray();
+        for (var variant : variants)
+            variant(writer, variant);
+        writer.endArray();
+    }
+
+    private static void variant(JsonWriter writer, @Nullable GradleModule.Variant variant) throws IOException {
+        if (variant == null) {
+            writer.nullValue();
+            return;
+        }
+
+        writer.beginObject();
+        writer.name("name").value(variant.name);
+        attributes(writer, variant.attributes);
+        if (variant.files != null) {
+            writer.name("files").beginArray();
+            for (var file : variant.files) {
+                writer.beginObject();
+                writer.name("name").value(file.name);
+                writer.name("url").value(file.url);
+                writer.name("size").value(file.size);
+                writer.name("sha1").value(file.sha1);
+                writer.name("sha256").value(file.sha256);
+                writer.name("sha512").value(file.sha512);
+                writer.name("md5").value(file.md5);
+                writer.endObject();
+            }
+            writer.endArray();
+        }
+        if (variant.dependencies != null) {
+            writer.name("dependencies").beginArray();
+            for (var dependency : variant.dependencies)
+                dependency(writer, dependency);
+            writer.endArray();
+        }
+        if (variant.dependencyConstraints != null) {
+            writer.name("dependencyConstraints").beginArray();
+            for (var constraint : variant.dependencyConstraints) {
+                writer.beginObject();
+                writer.name("group").value(constraint.group);
+                writer.name("module").value(constraint.module);
+                if (constraint.version != null)
+                    version(writer, constraint.version.requires, constraint.version.prefers, constraint.version.strictly, constraint.version.rejects);
+                writer.name("reason").value(constraint.reason);
+                attributes(writer, constraint.attributes);
+                writer.endObject();
+            }
+            writer.endArray();
+        }
+        capabilities(writer, "capabilities", variant.capabilities);
+        if (variant.availableAt != null) {
+            var at = variant.availableAt;
+            writer.name("availableAt").beginObject();
+            writer.name("url").value(at.url);
+            writer.name("group").value(at.group);
+            writer.name("module").value(at.module);
+            writer.name("version").value(at.version);
+            writer.endObject();
+        }
+        writer.endObject();
+    }
+
+    private static void dependency(JsonWriter writer, GradleModule.Variant.Dependency dependency) throws IOException {
+        writer.beginObject();
+        writer.name("group").value(dependency.group);
+        writer.name("module").value(dependency.module);
+        if (dependency.version != null)
+            version(writer, dependency.version.requires, dependency.version.prefers, dependency.version.strictly, dependency.version.rejects);
+        if (dependency.excludes != null) {
+            writer.name("excludes").beginArray();
+            for (var exclude : dependency.excludes) {
+                writer.beginObject();
+                writer.name("group").value(exclude.group);
+                writer.name("module").value(exclude.module);
+                writer.endObject();
+            }
+            writer.endArray();
+        }
+        writer.name("reason").value(dependency.reason);
+        attributes(writer, dependency.attributes);
+        capabilities(writer, "requestedCapabilities", dependency.requestedCapabilities);
+        writer.name("endorseStrictVersions").value(dependency.endorseStrictVersions);
+        if (dependency.thirdPartyCompatibility != null) {
+            writer.name("thirdPartyCompatibility").beginObject();
+            var selector = dependency.thirdPartyCompatibility.artifactSelector;
+            if (selector != null) {
+                writer.name("artifactSelector").beginObject();
+                writer.name("name").value(selector.name);
+                writer.name("type").value(selector.type);
+                writer.name("extension").value(selector.extension);
+                writer.name("classifier").value(selector.classifier);
+                writer.endObject();
+            }
+            writer.endObject();
+        }
+        writer.endObject();
+    }
+
+    private static void version(JsonWriter writer, String requires, String prefers, String strictly, @Nullable List<String> rejects) throws IOException {
+        writer.name("version").beginObject();
+        writer.name("requires").value(requires);
+        writer.name("prefers").value(prefers);
+        writer.name("strictly").value(strictly);
+        if (rejects != null) {
+            writer.name("rejects").beginArray();
+            for (var reject : rejects)
+                writer.value(reject);
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+
+    private static void capabilities(JsonWriter writer, String name, @Nullable List<GradleModule.Variant.Capability> capabilities) throws IOException {
+        if (capabilities == null)
+            return;
+
+        writer.name(name).beginArray();
+        for (var capability : capabilities) {
+            writer.beginObject();
+            writer.name("group").value(capability.group);
+            writer.name("name").value(capability.name);
+            writer.name("version").value(capability.version);
+            writer.endObject();
+        }
+        writer.endArray();
+    }
+
+    private static void attributes(JsonWriter writer, @Nullable Map<String, Object> attributes) throws IOException {
+        if (attributes == null)
+            return;
+
+        writer.name("attributes").beginObject();
+        for (var entry : attributes.entrySet()) {
+            writer.name(entry.getKey());
+            var value = entry.getValue();
+            if (value == null)
+                writer.nullValue();
+            else if (value instanceof String string)
+                writer.value(string);
+            else if (value instanceof Number number)
+                writer.value(number);
+            else if (value instanceof Boolean bool)
+                writer.value(bool);
+            else
+                Util.GSON.toJson(value, value.getClass(), writer);
+        }
+        writer.endObject();
+    }
+}
@@ -7,27 +7,30 @@ package net.minecraftforge.mcmaven.impl.mappings;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.util.Collections;
 import java.util.IdentityHashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.jetbrains.annotations.Nullable;
 
+import de.siegmar.fastcsv.writer.CsvWriter;
+import de.siegmar.fastcsv.writer.LineDelimiter;
 import net.minecraftforge.mcmaven.impl.Mavenizer;
 import net.minecraftforge.mcmaven.impl.repo.forge.FG2Userdev;
 import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCPConfigRepo;
 import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCPLegacy;
 import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCPSide;
 import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MinecraftTasks;
-import net.minecraftforge.mcmaven.impl.util.Constants;
-import net.minecraftforge.mcmaven.impl.util.ProcessUtils;
 import net.minecraftforge.mcmaven.impl.util.Task;
 import net.minecraftforge.mcmaven.impl.util.Util;
+import net.minecraftforge.srgutils.IMappingFile;
+import net.minecraftforge.util.file.FileUtils;
 
 class OfficialMappings extends Mappings {
     private final Map<Object, ResolvedMappings> resolved = new IdentityHashMap<>();
@@ -113,50 +116,104 @@ class OfficialMappings extends Mappings {
     }
 
     private File getMappings(MCPSide side, Task srgMappings, Task clientTask, Task serverTask) {
-        var tool = side.getMCP().getCache().maven().download(Constants.INSTALLER_TOOLS);
-
         var root = getFolder(new File(side.getMCP().getBuildFolder(), "data/mapings"));
         var output = new File(root, "official.zip");
-        var log = new File(root, "official.log");
 
         var mappings = srgMappings.execute();
         var client = clientTask.execute();
         var server = serverTask.execute();
 
         var cache = Util.cache(output);
-        cache.add("tool", tool);
         cache.add("mappings", mappings);
         cache.add("client", client);
         cache.add("server", server);
+        cache.add("codever", "1"); // 1 - Generate in process instead of forking installertools' MAPPINGS_CSV task
 
         if (Mavenizer.checkCache(output, cache))
             return output;
 
-        var args = List.of(
-            "--task",
-            "MAPPINGS_CSV",
-            "--srg",
-            mappings.getAbsolutePath(),
-            "--client",
-            client.getAbsolutePath(),
-            "--server",
-            server.getAbsolutePath(),
-            "--output",
-            output.getAbsolutePath()
-        );
-
-        File jdk;
         try {
-            jdk = side.getMCP().getCache().jdks().get(Constants.INSTALLER_TOOLS_JAVA_VERSION);
-        } catch (Exception e) {
-            throw new IllegalStateException("Failed to find JDK for version " + Constants.INSTALLER_TOOLS_JAVA_VERSION, e);
+            writeCsv(mappings, client, server, output);
+        } catch (IOException e) {
+            Util.sneak(e);
         }
 
-        var ret = ProcessUtils.runJar(jdk, log.getParentFile(), log, tool, Collections.emptyList(), args);
-        if (ret.exitCode != 0)
-            throw new IllegalStateException("Failed to run MCP Step (exit code " + ret.exitCode + "), See log: " + log.getAbsolutePath());
-
         cache.save();
         return output;
     }
+
+    /** Writes the srg to official name CSVs, the same as installertools' MAPPINGS_CSV task did. */
+    static void writeCsv(File mappings, File client, File server, File output) throws IOException {
+        var obf2srg = IMappingFile.load(mappings);
+        var clientData = gather(obf2srg, IMappingFile.load(client));
+        var serverData = gather(obf2srg, IMappingFile.load(server));
+
+        FileUtils.ensureParent(output);
+        try (var fos = new FileOutputStream(output);
+             var out = new ZipOutputStream(fos)) {
+            var uncloseable = new OutputStreamWriter(out, StandardCharsets.UTF_8) {
+                public void close() throws IOException {
+                    this.flush();
+                }
+            };
+
+            writeCsv(out, uncloseable, "fields.csv", clientData.fields, serverData.fields);
+            writeCsv(out, uncloseable, "methods.csv", clientData.methods, serverData.methods);
+        }
+    }
+
+    private record SideData(Map<String, String> fields, Map<String, String> methods) {
+        SideData() {
+            this(new TreeMap<>(), new TreeMap<>());
+        }
+    }
+
+    // Matches installertools' MAPPINGS_CSV task, the official mappings are moj->obf so we walk them and look up the srg name from obf
+    private static SideData gather(IMappingFile obf2srg, IMappingFile moj2obf) {
+        var ret = new SideData();
+        for (var mojCls : moj2obf.getClasses()) {
+            var srgCls = obf2srg.getClass(mojCls.getMapped());
+            if (srgCls == null)
+                continue;
+
+            for (var fld : mojCls.getFields()) {
+                var srg = srgCls.remapField(fld.getMapped());
+                if (srg.startsWith("field_") || srg.startsWith("f_"))
+                    ret.fields.put(srg, fld.getOriginal());
+            }
+
+            for (var mtd : mojCls.getMethods()) {
+                var srg = srgCls.remapMethod(mtd.getMapped(), mtd.getMappedDescriptor());
+                if (srg.startsWith("func_") || srg.startsWith("m_"))
+                    ret.methods.put(srg, mtd.getOriginal());
+            }
+        }
+        return ret;
+    }
+
+    private static void writeCsv(ZipOutputStream out, Writer writer, String name, Map<String, String> client, Map<String, String> server) throws IOException {
+        out.putNextEntry(Util.getStableEntry(name));
+
+        try (var csv = CsvWriter.builder()
+                .lineDelimiter(LineDelimiter.LF)
+                .build(writer)) {
+            csv.writeRecord("searge", "name", "side", "desc");
+
+            var serverOnly = new TreeMap<>(server);
+            for (var entry : client.entrySet()) {
+                var key = entry.getKey();
+                var mapped = entry.getValue();
+                if (mapped.equals(serverOnly.get(key))) {
+                    csv.writeRecord(key, mapped, "2", "");
+                    serverOnly.remove(key);
+                } else
+                    csv.writeRecord(key, mapped, "0", "");
+            }
+
+            for (var entry : serverOnly.entrySet())
+                csv.writeRecord(entry.getKey(), entry.getValue(), "1", "");
+        }
+
+        out.closeEntry();
+    }
 }
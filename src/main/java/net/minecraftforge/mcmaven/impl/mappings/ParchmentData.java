@@ -4,109 +4,211 @@
  */
 package net.minecraftforge.mcmaven.impl.mappings;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Collections;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
-import net.minecraftforge.util.data.json.JsonData;
+import org.jetbrains.annotations.Nullable;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Parchment export, read directly from the json stream into lookup tables.
+ * <p>
+ * The export for a single version is tens of megabytes, so we never build the full object tree.
+ * Names and descriptors are interned as they are read, javadocs are joined into a single string,
+ * and parameters are stored in arrays indexed by their JVM local variable slot.
+ */
 class ParchmentData {
-    public static ParchmentData load(InputStream stream) {
-        return JsonData.fromJson(stream, ParchmentData.class);
-    }
+    private static final Element[] NO_PARAMS = new Element[0];
 
     String version;
-    List<Package> packages;
-    List<Clazz> classes;
-
-    transient Map<String, Package> packageMap;
-    transient Map<String, Clazz> classMap;
-
-    void bake() {
-        if (packages == null)
-            packageMap = Collections.emptyMap();
-        else
-            packageMap = packages.stream().collect(Collectors.toMap(p -> p.name, Function.identity()));
-
-        if (classes == null)
-            classMap = Collections.emptyMap();
-        else {
-            classMap = new HashMap<>();
-            for (var cls : classes) {
-                classMap.put(cls.name, cls);
-                cls.bake();
+    final List<Element> packages = new ArrayList<>();
+    final Map<String, Clazz> classMap = new HashMap<>();
+
+    public static ParchmentData load(InputStream stream) throws IOException {
+        var ret = new ParchmentData();
+        var strings = new HashMap<String, String>();
+
+        try (var reader = new JsonReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "version" -> ret.version = reader.nextString();
+                    case "packages" -> {
+                        reader.beginArray();
+                        while (reader.hasNext())
+                            ret.packages.add(readElement(reader, strings));
+                        reader.endArray();
+                    }
+                    case "classes" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            var cls = readClass(reader, strings);
+                            ret.classMap.put(cls.name, cls);
+                        }
+                        reader.endArray();
+                    }
+                    default -> reader.skipValue();
+                }
             }
+            reader.endObject();
         }
-    }
 
-    static class Element {
-        String name;
-        List<String> javadoc;
+        return ret;
+    }
 
-        public Element() { }
-        private Element(String name, List<String> javadoc) {
-            this.name = name;
-            this.javadoc = javadoc;
+    private static Element readElement(JsonReader reader, Map<String, String> strings) throws IOException {
+        String name = null;
+        String javadoc = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name" -> name = intern(strings, reader.nextString());
+                case "javadoc" -> javadoc = readJavadoc(reader);
+                default -> reader.skipValue();
+            }
         }
+        reader.endObject();
+        return new Element(name, javadoc);
     }
 
-    static class Package extends Element {
+    private static Clazz readClass(JsonReader reader, Map<String, String> strings) throws IOException {
+        var cls = new Clazz();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name" -> cls.name = intern(strings, reader.nextString());
+                case "javadoc" -> cls.javadoc = readJavadoc(reader);
+                case "fields" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        var fld = readElement(reader, strings);
+                        cls.fieldMap.put(fld.name, fld);
+                    }
+                    reader.endArray();
+                }
+                case "methods" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        var mtd = readMethod(reader, strings);
+                        cls.methodMap.computeIfAbsent(mtd.name, _ -> new HashMap<>(2)).put(mtd.descriptor, mtd);
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return cls;
     }
 
-    static class Clazz extends Element {
-        List<Field> fields;
-        List<Method> methods;
-
-        transient Map<String, Field> fieldMap;
-        transient Map<String, Method> methodMap;
-
-        void bake() {
-            if (fields == null)
-                fieldMap = Collections.emptyMap();
-            else
-                fieldMap = fields.stream().collect(Collectors.toMap(p -> p.name, Function.identity()));
-
-            if (methods == null)
-                methodMap = Collections.emptyMap();
-            else {
-                methodMap = new HashMap<>();
-                for (var mtd : methods) {
-                    methodMap.put(mtd.name + mtd.descriptor, mtd);
-                    mtd.bake();
+    private static Method readMethod(JsonReader reader, Map<String, String> strings) throws IOException {
+        var mtd = new Method();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name" -> mtd.name = intern(strings, reader.nextString());
+                case "descriptor" -> mtd.descriptor = intern(strings, reader.nextString());
+                case "javadoc" -> mtd.javadoc = readJavadoc(reader);
+                case "parameters" -> {
+                    var params = NO_PARAMS;
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        int index = -1;
+                        String name = null;
+                        String javadoc = null;
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            switch (reader.nextName()) {
+                                case "index" -> index = reader.nextInt();
+                                case "name" -> name = intern(strings, reader.nextString());
+                                case "javadoc" -> javadoc = readJavadoc(reader);
+                                default -> reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+
+                        if (index < 0)
+                            continue;
+                        if (index >= params.length)
+                            params = Arrays.copyOf(params, index + 1);
+                        params[index] = new Element(name, javadoc);
+                    }
+                    reader.endArray();
+                    mtd.params = params;
                 }
+                default -> reader.skipValue();
             }
         }
+        reader.endObject();
+        return mtd;
     }
 
-    static class Field extends Element {
-        String descriptor;
+    /** Classes and packages use a list of lines, parameters use a single string. Either way we join with an escaped newline like the old MCP csvs. */
+    private static @Nullable String readJavadoc(JsonReader reader) throws IOException {
+        var token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        if (token != JsonToken.BEGIN_ARRAY)
+            return reader.nextString();
+
+        var sb = new StringBuilder();
+        reader.beginArray();
+        boolean first = true;
+        while (reader.hasNext()) {
+            if (!first)
+                sb.append("\\n");
+            sb.append(reader.nextString());
+            first = false;
+        }
+        reader.endArray();
+        return first ? null : sb.toString();
     }
 
-    static class Method extends Element {
-        String descriptor;
-        List<Parameter> parameters;
+    private static String intern(Map<String, String> strings, String value) {
+        var existing = strings.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
 
-        transient Map<Integer, Element> paramMap;
+    static class Element {
+        String name;
+        @Nullable String javadoc;
 
-        void bake() {
-            if (parameters == null)
-                paramMap = Collections.emptyMap();
-            else {
-                paramMap = new HashMap<>();
-                for (var param : parameters) {
-                    paramMap.put(param.index, new Element(param.name, param.javadoc == null ? null : List.of(param.javadoc)));
-                }
-            }
+        Element() { }
+        Element(String name, @Nullable String javadoc) {
+            this.name = name;
+            this.javadoc = javadoc;
         }
     }
 
-    static class Parameter {
-        int index;
-        String name;
-        String javadoc;
+    static class Clazz extends Element {
+        final Map<String, Element> fieldMap = new HashMap<>();
+        // name -> descriptor -> method, so lookups don't need to build a combined key
+        final Map<String, Map<String, Method>> methodMap = new HashMap<>();
+
+        @Nullable Method getMethod(String name, String descriptor) {
+            var byDesc = this.methodMap.get(name);
+            return byDesc == null ? null : byDesc.get(descriptor);
+        }
+    }
+
+    static class Method extends Element {
+        String descriptor;
+        Element[] params = NO_PARAMS;
+
+        @Nullable Element getParam(int index) {
+            return index < this.params.length ? this.params[index] : null;
+        }
     }
 }
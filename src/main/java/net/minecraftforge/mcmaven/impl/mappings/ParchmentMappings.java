@@ -16,6 +16,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -30,12 +32,14 @@ import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCP;
 import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCPLegacy;
 import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCPSide;
 import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MinecraftTasks;
+import net.minecraftforge.mcmaven.impl.util.MemoryBudget;
 import net.minecraftforge.mcmaven.impl.util.Task;
 import net.minecraftforge.mcmaven.impl.util.Util;
 import net.minecraftforge.srgutils.IMappingFile;
 import net.minecraftforge.util.file.FileUtils;
 
 public class ParchmentMappings extends Mappings {
+    private static final long PARCHMENT_MEMORY = 1L << 30;
     private final Map<Object, ResolvedMappings> resolved = new IdentityHashMap<>();
     private final ParchmentVersion parsedVersion;
     private Task downloadTask;
@@ -132,24 +136,38 @@ public class ParchmentMappings extends Mappings {
         if (Mavenizer.checkCache(output, cache))
             return output;
 
+        // Both sides of the mappings and parchment data are held in memory at once
+        try (var _ = MemoryBudget.acquire("parchment " + version(), PARCHMENT_MEMORY)) {
+            writeMappings(srg, client, server, data, output);
+        }
+
+        cache.save();
+        return output;
+    }
+
+    private static void writeMappings(File srg, File client, File server, File data, File output) throws IOException {
         ParchmentData json = null;
         try (var zip = new ZipFile(data)) {
             var entry = zip.getEntry("parchment.json");
             if (entry == null)
                 throw new IllegalStateException("Invalid parchment data archive, missing parchment.json: " + data.getAbsolutePath());
             json = ParchmentData.load(zip.getInputStream(entry));
-            json.bake();
         } catch (IOException e) {
             Util.sneak(e);
         }
 
-        var obf2mojClient = IMappingFile.load(client).reverse();
-        var obf2mojServer = IMappingFile.load(server).reverse();
-
         var obf2srg = IMappingFile.load(srg);
-
-        var clientData = gather(obf2srg, obf2mojClient, json, true);
-        var serverData = gather(obf2srg, obf2mojServer, json, false);
+        var parchment = json;
+
+        // The sides only read the shared srg and parchment data, so gather the server on another thread while we do the client
+        var serverFuture = CompletableFuture.supplyAsync(() -> gather(obf2srg, loadReversed(server), parchment, false));
+        var clientData = gather(obf2srg, loadReversed(client), parchment, true);
+        SideData serverData;
+        try {
+            serverData = serverFuture.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
 
         record Type(String file, Function<SideData, Map<String, Info>> data) {}
         var types = new Type[] {
@@ -189,9 +207,14 @@ public class ParchmentMappings extends Mappings {
                 out.closeEntry();
             }
         }
+    }
 
-        cache.save();
-        return output;
+    private static IMappingFile loadReversed(File file) {
+        try {
+            return IMappingFile.load(file).reverse();
+        } catch (IOException e) {
+            return Util.sneak(e);
+        }
     }
 
     private static List<String[]> getEntries(String file, Map<String, Info> cData, Map<String, Info> sData) {
@@ -234,19 +257,17 @@ public class ParchmentMappings extends Mappings {
 
     private static SideData gather(IMappingFile obf2srg, IMappingFile obf2moj, ParchmentData parchment, boolean limited) {
         var ret = new SideData();
-        if (parchment.packages != null) {
-            for (var pkg : parchment.packages) {
-                var name = pkg.name + '/';
-                var found = false;
-                for (var cls : obf2moj.getClasses()) {
-                    if (cls.getMapped().startsWith(name)) {
-                        found = true;
-                        break;
-                    }
+        for (var pkg : parchment.packages) {
+            var name = pkg.name + '/';
+            var found = false;
+            for (var cls : obf2moj.getClasses()) {
+                if (cls.getMapped().startsWith(name)) {
+                    found = true;
+                    break;
                 }
-                if (found)
-                    ret.packages.put(pkg.name, new Info(pkg.name, getJavadocs(pkg.javadoc)));
             }
+            if (found)
+                ret.packages.put(pkg.name, new Info(pkg.name, pkg.javadoc));
         }
 
         for (var mojCls : obf2moj.getClasses()) {
@@ -265,7 +286,7 @@ public class ParchmentMappings extends Mappings {
 
             for (var mojMtd : mojCls.getMethods()) {
                 var srgMtd     = srgCls   == null ? null : srgCls.getMethod(mojMtd.getOriginal(), mojMtd.getDescriptor());
-                var parchMtd   = parchCls == null ? null : parchCls.methodMap.get(mojMtd.getMapped() + mojMtd.getMappedDescriptor());
+                var parchMtd   = parchCls == null ? null : parchCls.getMethod(mojMtd.getMapped(), mojMtd.getMappedDescriptor());
                 var srgMtdName = srgMtd   == null ? mojMtd.getMapped() : srgMtd.getMapped();
 
                 if (srgMtdName.startsWith("func_") || srgMtdName.startsWith("m_"))
@@ -287,7 +308,7 @@ public class ParchmentMappings extends Mappings {
                             jvmIndex++;
                     }
 
-                    var parchParam = parchMtd.paramMap.get(jvmIndex);
+                    var parchParam = parchMtd.getParam(jvmIndex);
                     if (parchParam != null && srgParam.getMapped().startsWith("p_"))
                         add(ret.params, srgParam.getMapped(), parchParam.name, parchParam);
                 }
@@ -299,25 +320,11 @@ public class ParchmentMappings extends Mappings {
 
     private static void add(Map<String, Info> map, String orig, String mapped, ParchmentData.Element element) {
         mapped = mapped != null && !mapped.isBlank() ? mapped : orig;
-        var desc = element == null ? null : getJavadocs(element.javadoc);
+        var desc = element == null ? null : element.javadoc;
         if (!orig.equals(mapped) || desc != null)
             map.put(orig.replace('/', '.'), new Info(mapped.replace('/', '.'), desc));
     }
 
-    private static String getJavadocs(List<String> javadoc) {
-        if (javadoc == null || javadoc.isEmpty())
-            return null;
-
-        var sb = new StringBuilder();
-        int x = 0;
-        for (var line : javadoc) {
-            sb.append(line);
-            if (x++ != javadoc.size() - 1)
-                sb.append("\\n");
-        }
-        return sb.toString();
-    }
-
     private static List<String> getParameters(String desc) {
         var ret = new ArrayList<String>();
         int idx = 1;
@@ -7,6 +7,7 @@ package net.minecraftforge.mcmaven.impl.repo;
 import net.minecraftforge.mcmaven.impl.Mavenizer;
 import net.minecraftforge.mcmaven.impl.cache.Cache;
 import net.minecraftforge.mcmaven.impl.data.GradleModule;
+import net.minecraftforge.mcmaven.impl.data.GradleModuleWriter;
 import net.minecraftforge.mcmaven.impl.mappings.Mappings;
 import net.minecraftforge.mcmaven.impl.mappings.ResolvedMappings;
 import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCPConfigRepo;
@@ -16,13 +17,11 @@ import net.minecraftforge.mcmaven.impl.util.GradleAttributes;
 import net.minecraftforge.mcmaven.impl.util.POMBuilder;
 import net.minecraftforge.mcmaven.impl.util.Task;
 import net.minecraftforge.mcmaven.impl.util.Util;
-import net.minecraftforge.util.data.json.JsonData;
 import net.minecraftforge.util.file.FileUtils;
 
 import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -38,9 +37,6 @@ import java.util.function.Supplier;
 
 import org.jetbrains.annotations.Nullable;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerException;
-
 public abstract class Repo {
     protected final Cache cache;
 
@@ -95,7 +91,7 @@ public abstract class Repo {
             Arrays.sort(variants, (a,b) -> a.name.compareTo(b.name)); // Sort names to make output stable
 
             var variantFile = new File(parent.execute().getAbsolutePath() + ".variants");
-            var json = JsonData.toJson(variants);
+            var json = GradleModuleWriter.toJson(variants);
             var cache = Util.cache(variantFile)
                 .add("data", json);
 
@@ -129,8 +125,7 @@ public abstract class Repo {
         var deps = new ArrayList<Artifact>();
         deps.addAll(side.getMCLibraries());
         deps.addAll(side.getMCPConfigLibraries());
-        var jsonTask = side.getMCP().getMinecraftTasks().versionJson;
-        var json = JsonData.minecraftVersion(jsonTask.execute());
+        var json = side.getMCP().getMinecraftTasks().getVersionJson();
         var java = json.javaVersion != null ? json.javaVersion.majorVersion : null;
 
         return classVariants(mappings, java, deps, List.of());
@@ -212,10 +207,10 @@ public abstract class Repo {
 
             var builder = new POMBuilder(artifact.getGroup(), artifact.getName(), artifact.getVersion());
 
-            FileUtils.ensureParent(output);
-            try (var os = new FileOutputStream(output)) {
-                os.write(builder.build().getBytes(StandardCharsets.UTF_8));
-            } catch (IOException | ParserConfigurationException | TransformerException e) {
+            try {
+                var data = builder.build().getBytes(StandardCharsets.UTF_8);
+                Util.publish(output, tmp -> Files.write(tmp.toPath(), data));
+            } catch (IOException e) {
                 Util.sneak(e);
             }
 
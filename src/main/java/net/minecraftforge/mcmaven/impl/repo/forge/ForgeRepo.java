@@ -30,9 +30,6 @@ import net.minecraftforge.util.hash.HashFunction;
 
 import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerException;
-
 import org.jetbrains.annotations.Nullable;
 
 import java.io.ByteArrayOutputStream;
@@ -150,6 +147,34 @@ public final class ForgeRepo extends Repo {
         }
     }
 
+    /**
+     * Finds the MCPConfig version a Forge version is built from, by following its userdev config up to the MCP entry.
+     * This downloads the userdev jars, but doesn't set anything else up.
+     *
+     * @return The MCPConfig version, or {@code null} if the Forge version predates MCPConfig
+     */
+    public @Nullable String getMCPVersion(String version) {
+        var fg = FGVersion.fromForge(version);
+        if (fg == null || fg.ordinal() < FGVersion.v3.ordinal())
+            return null;
+
+        var name = getUserdev(version);
+        while (true) {
+            var data = this.cache.maven().download(name);
+            if (data == null || !data.exists())
+                throw new IllegalStateException("Failed to download " + name);
+
+            var config = Patcher.loadConfig(name, data);
+            if (config.getParent() == null)
+                throw new IllegalArgumentException("Invalid Patcher Dependency: " + name + " - Missing parent or mcp entry");
+
+            var next = Artifact.from(config.getParent());
+            if (!config.hasParent())
+                return next.getVersion();
+            name = next;
+        }
+    }
+
     private static Artifact getUserdev(String forge) {
         var forgever = new ComparableVersion(forge);
         // userdev3, old attempt to make 1.12.2 FG3 compatible
@@ -437,10 +462,10 @@ public final class ForgeRepo extends Repo {
                     dependencies.add(Artifact.from(descriptor), Dependency.Scope.RUNTIME);
             });
 
-            FileUtils.ensureParent(output);
-            try (var os = new FileOutputStream(output)) {
-                os.write(builder.build().getBytes(StandardCharsets.UTF_8));
-            } catch (IOException | ParserConfigurationException | TransformerException e) {
+            try {
+                var data = builder.build().getBytes(StandardCharsets.UTF_8);
+                Util.publish(output, tmp -> Files.write(tmp.toPath(), data));
+            } catch (IOException e) {
                 Util.sneak(e);
             }
 
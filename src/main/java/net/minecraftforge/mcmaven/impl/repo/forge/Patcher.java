@@ -42,6 +42,7 @@ import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MCPSide;
 import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MinecraftTasks;
 import net.minecraftforge.mcmaven.impl.util.Artifact;
 import net.minecraftforge.mcmaven.impl.util.Constants;
+import net.minecraftforge.mcmaven.impl.util.JfrEvents;
 import net.minecraftforge.util.data.json.JsonData;
 import net.minecraftforge.util.data.json.PatcherConfig;
 import net.minecraftforge.util.file.FileUtils;
@@ -96,7 +97,7 @@ public class Patcher implements Supplier<Task>, ForgeVersionCommon {
             throw new IllegalStateException("Failed to download " + name);
 
         this.dataHash = Util.sneak(() -> HashFunction.sha1().hash(this.data));
-        this.config = loadConfig(this.data);
+        this.config = loadConfig(this.name, this.data);
         validateConfig();
 
         if (this.config.sources == null) {
@@ -184,18 +185,26 @@ public class Patcher implements Supplier<Task>, ForgeVersionCommon {
     }
 
     private RuntimeException except(String message) {
-        return new IllegalArgumentException("Invalid Patcher Dependency: " + this.name + " - " + message);
+        return except(this.name, message);
     }
 
     private RuntimeException except(String message, Throwable e) {
-        return new IllegalArgumentException("Invalid Patcher Dependency: " + this.name + " - " + message, e);
+        return except(this.name, message, e);
     }
 
-    private PatcherConfig.V2 loadConfig(File data) {
+    private static RuntimeException except(Artifact name, String message) {
+        return new IllegalArgumentException("Invalid Patcher Dependency: " + name + " - " + message);
+    }
+
+    private static RuntimeException except(Artifact name, String message, Throwable e) {
+        return new IllegalArgumentException("Invalid Patcher Dependency: " + name + " - " + message, e);
+    }
+
+    static PatcherConfig.V2 loadConfig(Artifact name, File data) {
         try (var zip = new ZipFile(data)) {
             var entry = zip.getEntry("config.json");
             if (entry == null)
-                throw except("Missing config.json");
+                throw except(name, "Missing config.json");
             var cfg_data = zip.getInputStream(entry).readAllBytes();
 
             int spec = JsonData.configSpec(cfg_data);
@@ -205,10 +214,10 @@ public class Patcher implements Supplier<Task>, ForgeVersionCommon {
             else if (spec == 2)
                 return JsonData.patcherConfigV2(cfg_data);
             else
-                throw except("Unknown Spec: " + spec);
+                throw except(name, "Unknown Spec: " + spec);
 
         } catch (IOException e) {
-            throw except("Error reading config", e);
+            throw except(name, "Error reading config", e);
         }
     }
 
@@ -628,7 +637,7 @@ public class Patcher implements Supplier<Task>, ForgeVersionCommon {
         if (this.config.patchesModifiedPrefix != null)
             builder = builder.bPrefix(this.config.patchesModifiedPrefix);
 
-        try {
+        try (var _ = JfrEvents.zip("patch", input, output)) {
             var result = builder.build().operate();
 
             boolean success = result.exit == 0;
@@ -675,7 +684,7 @@ public class Patcher implements Supplier<Task>, ForgeVersionCommon {
         if (Mavenizer.checkCache(output, cache))
             return output;
 
-        try {
+        try (var _ = JfrEvents.zip("inject-sources", input, output)) {
             FileUtils.mergeJars(output, false,
                 (file, path) -> file != sources || !path.startsWith("patches/"),
                 sources, input
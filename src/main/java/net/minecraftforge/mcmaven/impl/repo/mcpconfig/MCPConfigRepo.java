@@ -5,6 +5,7 @@
 package net.minecraftforge.mcmaven.impl.repo.mcpconfig;
 
 import net.minecraftforge.mcmaven.impl.Mavenizer;
+import net.minecraftforge.mcmaven.impl.MinecraftMaven;
 import net.minecraftforge.mcmaven.impl.repo.Repo;
 import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MinecraftTasks.ArtifactFile;
 import net.minecraftforge.mcmaven.impl.repo.mcpconfig.MinecraftTasks.MCFile;
@@ -18,19 +19,17 @@ import net.minecraftforge.mcmaven.impl.util.Artifact;
 import net.minecraftforge.mcmaven.impl.util.ComparableVersion;
 import net.minecraftforge.mcmaven.impl.util.Constants;
 import net.minecraftforge.mcmaven.impl.util.POMBuilder;
+import net.minecraftforge.mcmaven.impl.util.ParsedFile;
 import net.minecraftforge.mcmaven.impl.util.Task;
 import net.minecraftforge.mcmaven.impl.util.Util;
 import net.minecraftforge.util.data.json.JsonData;
+import net.minecraftforge.util.data.json.LauncherManifest;
 import net.minecraftforge.util.download.DownloadUtils;
 import net.minecraftforge.util.file.FileUtils;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerException;
-
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -38,8 +37,10 @@ import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Supplier;
 import java.util.jar.JarFile;
 
@@ -78,8 +79,23 @@ public final class MCPConfigRepo extends Repo {
     private final Map<LegacyKey, MCPLegacy> legacy = new HashMap<>();
     private final Map<String, MinecraftTasks> mcTasks = new HashMap<>();
     private final Task downloadLauncherManifest = Task.named("downloadLauncherManifest", this::downloadLauncherManifest);
+    private final ParsedFile<LauncherManifest> launcherManifestData = new ParsedFile<>(JsonData::launcherManifest);
 
     private final boolean dependenciesOnly;
+    private @Nullable Set<String> mcpConfigVersions;
+    private @Nullable Set<String> mcpLegacyVersions;
+
+    /** How a Minecraft version is built. */
+    public enum Toolchain {
+        /** Decompiled and patched with MCPConfig */
+        MCP_CONFIG,
+        /** Decompiled with the legacy MCP toolchain */
+        MCP_LEGACY,
+        /** Only renamed with Mojang's mappings, or not obfuscated to begin with */
+        OFFICIAL,
+        /** Nothing we can use */
+        NONE
+    }
 
     public MCPConfigRepo(Cache cache, boolean dependenciesOnly) {
         super(cache);
@@ -114,13 +130,64 @@ public final class MCPConfigRepo extends Repo {
     }
 
     public MinecraftTasks getMCTasks(String version) {
-        return this.mcTasks.computeIfAbsent(version, _ -> new MinecraftTasks(this.cache, version, this.downloadLauncherManifest));
+        return this.mcTasks.computeIfAbsent(version, _ -> new MinecraftTasks(this.cache, version, this.downloadLauncherManifest, this.launcherManifestData));
     }
 
     public Task getLauncherManifestTask() {
         return this.downloadLauncherManifest;
     }
 
+    /** The parsed launcher manifest, only re-read if the downloaded file changes. Shared between callers, so don't modify it */
+    public LauncherManifest getLauncherManifest() {
+        return this.launcherManifestData.get(this.downloadLauncherManifest.execute());
+    }
+
+    /**
+     * Picks the toolchain used to build a Minecraft version, so everything that plans ahead agrees with the build.
+     *
+     * @param version The Minecraft or MCP version, such as {@code 1.21.1} or {@code 1.21.1-20240808.132146}
+     */
+    public Toolchain getToolchain(String version) {
+        if (this.hasMCPConfig(version))
+            return Toolchain.MCP_CONFIG;
+        if (this.hasMCPLegacy(version))
+            return Toolchain.MCP_LEGACY;
+
+        var mcVersion = MinecraftMaven.mcpToMcVersion(version);
+        if (!isObfuscated(mcVersion) || this.hasOfficialMappings(mcVersion))
+            return Toolchain.OFFICIAL;
+        return Toolchain.NONE;
+    }
+
+    /** @return If the version has an MCPConfig, this doesn't download anything but the list of versions */
+    public boolean hasMCPConfig(String version) {
+        if (this.mcpConfigVersions == null) {
+            // Quick check of maven-metadata.xml to get a list of known MCPConfig versions
+            var versions = new HashSet<>(this.cache.maven().getVersions(MCP.artifact("1.21.11")));
+            versions.remove("1.12.2"); // Force 1.12.2 to not use MCPConfig, instead using the legacy MCP toolchain
+            this.mcpConfigVersions = versions;
+        }
+        return this.mcpConfigVersions.contains(version);
+    }
+
+    /** @return If the version has a legacy MCP, this doesn't download anything but the list of versions */
+    public boolean hasMCPLegacy(String version) {
+        if (this.mcpLegacyVersions == null) {
+            this.mcpLegacyVersions = new HashSet<>(this.cache.maven().getVersions(MCPLegacy.artifact("1.12.2")));
+            // Used while developing on maven local
+            //this.mcpLegacyVersions.addAll(List.of("1.7.2", "1.7.10-pre4", "1.7.10"));
+        }
+        return this.mcpLegacyVersions.contains(version);
+    }
+
+    /** @return If Mojang published mappings for the Minecraft version */
+    public boolean hasOfficialMappings(String version) {
+        var json = this.getMCTasks(version).getVersionJson();
+
+        return json.getDownload(MCFile.CLIENT_MAPPINGS.key) != null ||
+            json.getDownload(MCFile.SERVER_MAPPINGS.key) != null;
+    }
+
     // Mojang stopped obfusciating their released with the 26.1-snapshot-1
     private static final ComparableVersion LAST_OBFUSCATED = new ComparableVersion("1.21.11");
     public static boolean isObfuscated(String version) {
@@ -135,7 +202,7 @@ public final class MCPConfigRepo extends Repo {
                 if (Mavenizer.isCacheOnly())
                     Mavenizer.assertNotCacheOnly();
                 Mavenizer.assertOnline();
-                DownloadUtils.downloadFile(target, Constants.LAUNCHER_MANIFEST);
+                Util.publish(target, tmp -> DownloadUtils.downloadFile(tmp, Constants.LAUNCHER_MANIFEST));
             } catch (IOException e) {
                 Util.sneak(e);
             }
@@ -448,10 +515,10 @@ public final class MCPConfigRepo extends Repo {
                 mcpSide.forAllLibraries(dependencies::add, Artifact::hasNoOs);
             });
 
-            FileUtils.ensureParent(output);
-            try (var os = new FileOutputStream(output)) {
-                os.write(builder.build().getBytes(StandardCharsets.UTF_8));
-            } catch (IOException | ParserConfigurationException | TransformerException e) {
+            try {
+                var data = builder.build().getBytes(StandardCharsets.UTF_8);
+                Util.publish(output, tmp -> Files.write(tmp.toPath(), data));
+            } catch (IOException e) {
                 Util.sneak(e);
             }
 
@@ -469,10 +536,10 @@ public final class MCPConfigRepo extends Repo {
 
             var builder = new POMBuilder("net.minecraft", side, version);
 
-            FileUtils.ensureParent(output);
-            try (var os = new FileOutputStream(output)) {
-                os.write(builder.build().getBytes(StandardCharsets.UTF_8));
-            } catch (IOException | ParserConfigurationException | TransformerException e) {
+            try {
+                var data = builder.build().getBytes(StandardCharsets.UTF_8);
+                Util.publish(output, tmp -> Files.write(tmp.toPath(), data));
+            } catch (IOException e) {
                 Util.sneak(e);
             }
 
@@ -483,8 +550,7 @@ public final class MCPConfigRepo extends Repo {
 
     private GradleModule.Variant[] classVariantsClient(Mappings mappings, MinecraftTasks tasks) {
         var deps = new ArrayList<Artifact>();
-        var json = JsonData.minecraftVersion(tasks.versionJson.execute());
-        for (var lib : json.getLibs())
+        for (var lib : tasks.getVersionJson().getLibs())
             deps.add(Artifact.from(lib.coord).withOS(lib.os));
         return classVariants(mappings, tasks.getJavaVersion(), deps, List.of());
     }
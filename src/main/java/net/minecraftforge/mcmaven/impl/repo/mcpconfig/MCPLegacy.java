@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
@@ -162,6 +163,20 @@ public class MCPLegacy {
         return 8;
     }
 
+    /**
+     * Lists the tools the legacy toolchain runs for this version, so they can be downloaded ahead of time.
+     *
+     * @param consumer Called with each tool and the Java version it runs on
+     */
+    public void forAllTools(BiConsumer<Artifact, Integer> consumer) {
+        var cfg = MCPCfg.get(this.mcVersionComp, null);
+        consumer.accept(Constants.LEGACY_MERGETOOL, Constants.LEGACY_MERGETOOL_JAVA_VERSION);
+        consumer.accept(Constants.MCINJECTOR, Constants.MCINJECTOR_JAVA_VERSION);
+        consumer.accept(cfg.decompiler.artifact, Math.max(8, this.getJavaTarget()));
+        consumer.accept(cfg.cleanup.artifact, Constants.MCPCLEANUP_JAVA_VERSION);
+        consumer.accept(Constants.ACCESS_TRANSFORMER, Constants.ACCESS_TRANSFORMER_JAVA_VERSION);
+    }
+
     public List<File> getClasspath() {
         var classpath = new ArrayList<File>();
         for (var lib : this.getMinecraftTasks().getClientLibraries())
@@ -250,11 +265,11 @@ public class MCPLegacy {
     }
 
     private Task listLibraries() {
-        var json = this.getMinecraftTasks().versionJson;
+        var mc = this.getMinecraftTasks();
         var output = new File(this.build, "libraries.txt");
         var maven = this.repo.getCache().minecraft();
         return Task.named(prefix() + "list-libraries",
-            Task.deps(json), () -> MCPTaskFactory.listLibraries(json, output, maven)
+            Task.deps(mc.versionJson), () -> MCPTaskFactory.listLibraries(mc, output, maven)
         );
     }
 
@@ -789,7 +804,7 @@ public class MCPLegacy {
 
             var jdk = jdks.tryGet(java_version);
             //jdk = new File("C:\\Program Files\\java\\jdk1.7.0_80");
-            var ret = StupidHacks.runDecompiler(jdk, log, tool, jvm, run);
+            var ret = StupidHacks.runDecompiler(jdk, java_version, log, tool, input, jvm, run);
             if (ret.exitCode != 0 || !temp.exists())
                 throw new IllegalStateException("Failed to run decompiler (exit code " + ret.exitCode + "), See log: " + log.getAbsolutePath());
 
@@ -41,14 +41,14 @@ import net.minecraftforge.mcmaven.impl.cache.MavenCache;
 import net.minecraftforge.mcmaven.impl.cache.MinecraftMavenCache;
 import net.minecraftforge.mcmaven.impl.util.Artifact;
 import net.minecraftforge.mcmaven.impl.util.Constants;
-import net.minecraftforge.util.data.json.JsonData;
+import net.minecraftforge.mcmaven.impl.util.JfrEvents;
 import net.minecraftforge.util.data.json.MCPConfig;
 import net.minecraftforge.util.data.json.MinecraftVersion;
 import net.minecraftforge.util.file.FileUtils;
-import net.minecraftforge.util.hash.HashStore;
 import net.minecraftforge.mcmaven.impl.util.ProcessUtils;
 import net.minecraftforge.mcmaven.impl.util.StupidHacks;
 import net.minecraftforge.mcmaven.impl.util.Task;
+import net.minecraftforge.mcmaven.impl.util.TrackedHashStore;
 import net.minecraftforge.mcmaven.impl.util.Util;
 import net.minecraftforge.srgutils.IMappingFile;
 import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
@@ -307,6 +307,7 @@ public class MCPTaskFactory {
 
         var cache = Util.cache(base)
             .add("mcp", getData());
+        Mavenizer.accessed(base);
         boolean same = !Mavenizer.ignoreCache() && cache.isSame();
 
         var existing = new HashSet<>(FileUtils.listFiles(base));
@@ -423,11 +424,6 @@ public class MCPTaskFactory {
         if (Mavenizer.checkCache(output, cache))
             return output;
 
-        if (output.exists())
-            output.delete();
-
-        FileUtils.ensureParent(output);
-
         try {
             var classes = new HashSet<>();
 
@@ -437,25 +433,27 @@ public class MCPTaskFactory {
                     classes.add(cls.getOriginal() + ".class");
             }
 
-            try (var is = new JarInputStream(new FileInputStream(input));
-                var os = new JarOutputStream(new FileOutputStream(output))) {
-               JarEntry entry;
-               while ((entry = is.getNextJarEntry()) != null) {
-                   if (entry.isDirectory())
-                       continue;
-                   // If we don't have any mappings, then we're in unobfed 26.1+ so we just want classes
-                   if (classes.isEmpty()) {
-                       if (!entry.getName().endsWith(".class"))
-                           continue;
-                   } else {
-                       if (classes.contains(entry.getName()) != whitelist)
-                           continue;
-                   }
-                   os.putNextEntry(FileUtils.getStableEntry(entry));
-                   is.transferTo(os);
-                   os.closeEntry();
-               }
-            }
+            Util.publish(output, tmp -> {
+                try (var is = new JarInputStream(new FileInputStream(input));
+                     var os = new JarOutputStream(new FileOutputStream(tmp))) {
+                    JarEntry entry;
+                    while ((entry = is.getNextJarEntry()) != null) {
+                        if (entry.isDirectory())
+                            continue;
+                        // If we don't have any mappings, then we're in unobfed 26.1+ so we just want classes
+                        if (classes.isEmpty()) {
+                            if (!entry.getName().endsWith(".class"))
+                                continue;
+                        } else {
+                            if (classes.contains(entry.getName()) != whitelist)
+                                continue;
+                        }
+                        os.putNextEntry(FileUtils.getStableEntry(entry));
+                        is.transferTo(os);
+                        os.closeEntry();
+                    }
+                }
+            });
 
             cache.save();
             return output;
@@ -576,7 +574,7 @@ public class MCPTaskFactory {
             //.bPrefix("b")
         ;
 
-        try {
+        try (var _ = JfrEvents.zip("patch", input, output)) {
             FileUtils.ensureParent(output);
             FileUtils.ensureParent(rejects);
 
@@ -606,16 +604,16 @@ public class MCPTaskFactory {
 
     private Task listLibraries(String name, Map<String, String> step) {
         var output = new File(this.build, name + ".txt");
-        var json = this.side.getMCP().getMinecraftTasks().versionJson;
+        var mc = this.side.getMCP().getMinecraftTasks();
         return Task.named(name,
-            Task.deps(json),
-            () -> listLibraries(json, output, this.side.getMCP().getCache().minecraft())
+            Task.deps(mc.versionJson),
+            () -> listLibraries(mc, output, this.side.getMCP().getCache().minecraft())
         );
     }
 
-    public static File listLibraries(Task jsonTask, File output, MinecraftMavenCache minecraft) {
-        var jsonF = jsonTask.execute();
-        var json = JsonData.minecraftVersion(jsonF);
+    public static File listLibraries(MinecraftTasks mc, File output, MinecraftMavenCache minecraft) {
+        var jsonF = mc.versionJson.execute();
+        var json = mc.getVersionJson();
 
         var libsRaw = json.getLibs();
         // Deduplicate libs, Some versions have conditions that cause libraries to be listed multiple times
@@ -756,7 +754,7 @@ public class MCPTaskFactory {
         if (Mavenizer.checkCache(output, cache))
             return output;
 
-        try {
+        try (var _ = JfrEvents.zip("strip", prestrip, output)) {
             if (!output.getParentFile().exists())
                 output.getParentFile().mkdirs();
 
@@ -869,10 +867,14 @@ public class MCPTaskFactory {
         }
 
         ProcessUtils.Result ret;
-        if (isDecompile)
-            ret = StupidHacks.runDecompiler(jdk, log, tool, jvm, run);
-        else
+        if (isDecompile) {
+            // Arguments are filled one for one, so the input is wherever the function declared it
+            int idx = func.args == null ? -1 : func.args.indexOf("{input}");
+            var input = idx < 0 ? null : new File(run.get(idx));
+            ret = StupidHacks.runDecompiler(jdk, java_version, log, tool, input, jvm, run);
+        } else {
             ret = ProcessUtils.runJar(jdk, log.getParentFile(), log, tool, jvm, run);
+        }
 
         if (ret.exitCode != 0)
             throw new IllegalStateException("Failed to run MCP Step (exit code " + ret.exitCode + "), See log: " + log.getAbsolutePath());
@@ -909,7 +911,7 @@ public class MCPTaskFactory {
         return ret;
     }
 
-    private List<String> resolveArgs(HashStore cache, Map<Task, String> tasks, List<TaskOrArg> args) {
+    private List<String> resolveArgs(TrackedHashStore cache, Map<Task, String> tasks, List<TaskOrArg> args) {
         var ret = new ArrayList<String>();
         for (var toa : args) {
             if (toa.task() == null)
@@ -17,19 +17,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.jar.JarFile;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerException;
-
 import org.jetbrains.annotations.Nullable;
 
 import net.minecraftforge.mcmaven.impl.Mavenizer;
 import net.minecraftforge.mcmaven.impl.cache.Cache;
 import net.minecraftforge.util.data.json.JsonData;
+import net.minecraftforge.util.data.json.LauncherManifest;
 import net.minecraftforge.util.download.DownloadUtils;
 import net.minecraftforge.util.file.FileUtils;
 import net.minecraftforge.mcmaven.impl.util.Artifact;
 import net.minecraftforge.mcmaven.impl.util.Constants;
 import net.minecraftforge.mcmaven.impl.util.POMBuilder;
+import net.minecraftforge.mcmaven.impl.util.ParsedFile;
 import net.minecraftforge.mcmaven.impl.util.ProcessUtils;
 import net.minecraftforge.mcmaven.impl.util.Task;
 import net.minecraftforge.mcmaven.impl.util.Util;
@@ -45,6 +44,8 @@ public class MinecraftTasks {
     private final String version;
     public final Task launcherManifest;
     public final Task versionJson;
+    private final ParsedFile<LauncherManifest> launcherManifestData;
+    private final ParsedFile<net.minecraftforge.util.data.json.MinecraftVersion> versionJsonData = new ParsedFile<>(JsonData::minecraftVersion);
     private final Map<String, Task> versionFiles = new HashMap<>();
 
     private Task mergeMappings;
@@ -73,14 +74,17 @@ public class MinecraftTasks {
     /**
      * Creates a new Minecraft task handler for the given version.
      *
-     * @param cache   The caches folder
-     * @param version The version to handle tasks for
+     * @param cache                The caches folder
+     * @param version              The version to handle tasks for
+     * @param launcherManifest     The task that downloads the launcher manifest
+     * @param launcherManifestData The parsed launcher manifest, shared between all versions
      */
-    MinecraftTasks(Cache cache, String version, Task launcherManifest) {
+    MinecraftTasks(Cache cache, String version, Task launcherManifest, ParsedFile<LauncherManifest> launcherManifestData) {
         this.cache = cache;
         this.cacheRoot = new File(new File(this.cache.root(), "minecraft_tasks"), version);
         this.version = version;
         this.launcherManifest = launcherManifest;
+        this.launcherManifestData = launcherManifestData;
         this.versionJson = Task.named("downloadVersionJson[" + version + ']', Task.deps(this.launcherManifest), this::downloadVersionJson);
     }
 
@@ -92,10 +96,15 @@ public class MinecraftTasks {
         return this.version;
     }
 
+    /** The parsed version json, only re-read if the downloaded file changes. Shared between callers, so don't modify it */
+    public net.minecraftforge.util.data.json.MinecraftVersion getVersionJson() {
+        return this.versionJsonData.get(this.versionJson.execute());
+    }
+
     private File downloadVersionJson() {
         var target = new File(this.cacheRoot, "version.json");
         var manifestF = this.launcherManifest.execute();
-        var manifest = JsonData.launcherManifest(manifestF).getInfo(version);
+        var manifest = this.launcherManifestData.get(manifestF).getInfo(version);
 
         var cache = Util.cache(target);
         if (manifest != null && manifest.sha1 != null)
@@ -103,6 +112,7 @@ public class MinecraftTasks {
         else
             cache.add("manifest", manifestF);
 
+        Mavenizer.accessed(target);
         if (!Mavenizer.ignoreCache() && target.exists() && cache.isSame())
             return target;
 
@@ -121,7 +131,7 @@ public class MinecraftTasks {
             throw new IllegalStateException("Failed to find url for " + this.version + " version.json");
 
         try {
-            DownloadUtils.downloadFile(target, manifest.url.toExternalForm());
+            Util.publish(target, tmp -> DownloadUtils.downloadFile(tmp, manifest.url.toExternalForm()));
         } catch (IOException e) {
             throw new IllegalStateException("Failed to download " + manifest.url, e);
         }
@@ -155,13 +165,13 @@ public class MinecraftTasks {
 
         Mavenizer.assertOnline();
 
-        var manifest = JsonData.minecraftVersion(manifestF);
+        var manifest = this.versionJsonData.get(manifestF);
         var dl = manifest.getDownload(key);
         if (dl == null || dl.url == null)
             throw new IllegalStateException("Missing '" + key  +"' from " + manifestF.getAbsolutePath());
 
         try {
-            DownloadUtils.downloadFile(target, dl.url.toExternalForm());
+            Util.publish(target, tmp -> DownloadUtils.downloadFile(tmp, dl.url.toExternalForm()));
         } catch (IOException e) {
             throw new IllegalStateException("Failed to download " + dl.url, e);
         }
@@ -192,7 +202,7 @@ public class MinecraftTasks {
             var off2obfClient = IMappingFile.load(client);
             var off2obfServer = IMappingFile.load(server);
             var off2obf = off2obfClient.merge(off2obfServer);
-            off2obf.write(output.toPath(), Format.TSRG2, false);
+            Util.publish(output, tmp -> off2obf.write(tmp.toPath(), Format.TSRG2, false));
         } catch (IOException e) {
             Util.sneak(e);
         }
@@ -284,7 +294,7 @@ public class MinecraftTasks {
         if (Mavenizer.checkCache(output, cache))
             return output;
 
-        var meta = JsonData.minecraftVersion(json);
+        var meta = this.versionJsonData.get(json);
 
         var builder = new POMBuilder("net.minecraft", name, version)
             .preferGradleModule()
@@ -325,10 +335,10 @@ public class MinecraftTasks {
     }
 
     private static void write(POMBuilder pom, File output) {
-        FileUtils.ensureParent(output);
-        try (var os = new FileOutputStream(output)) {
-            os.write(pom.build().getBytes(StandardCharsets.UTF_8));
-        } catch (IOException | ParserConfigurationException | TransformerException e) {
+        try {
+            var data = pom.build().getBytes(StandardCharsets.UTF_8);
+            Util.publish(output, tmp -> Files.write(tmp.toPath(), data));
+        } catch (IOException e) {
             Util.sneak(e);
         }
     }
@@ -367,7 +377,7 @@ public class MinecraftTasks {
             if (jarEntry == null)
                 throw new IllegalStateException("Invalid bundle: `" + bundle + "` - Missing " + path);
 
-            Files.copy(jar.getInputStream(jarEntry), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Util.publish(output, tmp -> Files.copy(jar.getInputStream(jarEntry), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING));
 
             cache.save();
 
@@ -382,8 +392,7 @@ public class MinecraftTasks {
     public List<ArtifactFile> getClientLibraries() {
         if (clientLibraries == null) {
             var ret = new ArrayList<ArtifactFile>();
-            var json = JsonData.minecraftVersion(this.versionJson.execute());
-            var libs = json.getLibs();
+            var libs = this.getVersionJson().getLibs();
             for (var lib : libs) {
                 //Natives don't have main download
                 if (lib.dl == null)
@@ -439,8 +448,7 @@ public class MinecraftTasks {
     }
 
     public @Nullable Integer getJavaVersion() {
-        var jsonTask = this.versionJson;
-        var json = JsonData.minecraftVersion(jsonTask.execute());
+        var json = this.getVersionJson();
         return json.javaVersion != null ? json.javaVersion.majorVersion : null;
     }
 }
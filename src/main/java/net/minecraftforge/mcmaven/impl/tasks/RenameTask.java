@@ -8,6 +8,7 @@ import net.minecraftforge.mcmaven.impl.Mavenizer;
 import net.minecraftforge.mcmaven.impl.mappings.ResolvedMappings;
 import net.minecraftforge.util.file.FileUtils;
 import net.minecraftforge.util.hash.HashFunction;
+import net.minecraftforge.mcmaven.impl.util.JfrEvents;
 import net.minecraftforge.mcmaven.impl.util.StupidHacks;
 import net.minecraftforge.mcmaven.impl.util.Task;
 import net.minecraftforge.mcmaven.impl.util.Util;
@@ -108,7 +109,8 @@ public final class RenameTask implements Task {
             // TODO: [MCMavenizer][Renamer] This garbage was copy-pasted from FG.
             // I changed the while loop to a for loop, though. I guess it is fine?
             FileUtils.ensureParent(output);
-            try (var zin = new ZipInputStream(new FileInputStream(input));
+            try (var _ = JfrEvents.zip("rename", input, output);
+                 var zin = new ZipInputStream(new FileInputStream(input));
                  var zout = new ZipOutputStream(new FileOutputStream(output))) {
                 for (var entry = zin.getNextEntry(); entry != null; entry = zin.getNextEntry()) {
                     zout.putNextEntry(FileUtils.getStableEntry(entry.getName()));
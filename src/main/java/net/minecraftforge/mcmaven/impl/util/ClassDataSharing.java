@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.Nullable;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+/**
+ * Class data sharing archives for forked tool JVMs, so they don't have to load and verify the same classes every time.
+ * <p>
+ * The first time a tool is run on a JDK, it dumps a dynamic archive with {@code -XX:ArchiveClassesAtExit}. Later runs
+ * map it with {@code -XX:SharedArchiveFile}. Archives are keyed by the JDK, the classpath and the main class only, as
+ * other JVM arguments such as the heap size and GC log change from run to run. The JVM silently ignores an archive
+ * that doesn't match its settings, so the tool behaves the same either way.
+ * <p>
+ * Only the most recently used archives are kept, anything else is deleted whenever a new one is made.
+ * <p>
+ * Dynamic archives need Java 13, older JDKs are run as before.
+ */
+public final class ClassDataSharing {
+    private ClassDataSharing() { }
+
+    private static final int MIN_VERSION = 13;
+    // The JVM warns on stdout if it can't use an archive, which would end up in the tool's output
+    private static final String QUIET = "-Xlog:cds*=off";
+    private static final int MAX_ARCHIVES = 32;
+    private static final long MAX_AGE = TimeUnit.DAYS.toMillis(30);
+
+    private static volatile @Nullable File root = null;
+    private static final Session NONE = new Session(List.of(), null, null, null);
+
+    /**
+     * Enables class data sharing.
+     *
+     * @param dir The directory to keep archives in, usually in the JDK cache
+     */
+    public static void init(File dir) {
+        root = dir;
+    }
+
+    /**
+     * Picks the class data sharing arguments for a forked JVM.
+     *
+     * @param javaHome  The JDK being launched
+     * @param classpath The classpath of the JVM
+     * @param main      The main class
+     * @return The session, which must be finished once the JVM exits
+     */
+    public static Session begin(File javaHome, String classpath, String main) {
+        var dir = root;
+        if (dir == null || javaVersion(javaHome) < MIN_VERSION)
+            return NONE;
+
+        var archive = new File(dir, key(javaHome, classpath, main) + ".jsa");
+        if (archive.isFile()) {
+            // Remember when it was last used, so cleaning up keeps the ones we still need
+            archive.setLastModified(System.currentTimeMillis());
+            return new Session(List.of("-XX:SharedArchiveFile=" + archive.getAbsolutePath(), QUIET), null, null, null);
+        }
+
+        // Someone else is already making it, this run just goes without
+        var lock = FileLocks.tryLock(FileLocks.lockFile(archive));
+        if (lock == null)
+            return NONE;
+
+        // It may have been finished while we were getting the lock
+        if (archive.isFile()) {
+            lock.close();
+            return new Session(List.of("-XX:SharedArchiveFile=" + archive.getAbsolutePath(), QUIET), null, null, null);
+        }
+
+        var temp = new File(dir, archive.getName() + '.' + ProcessHandle.current().pid() + ".tmp");
+        temp.delete();
+        return new Session(List.of("-XX:ArchiveClassesAtExit=" + temp.getAbsolutePath(), QUIET), archive, temp, lock);
+    }
+
+    private static String key(File javaHome, String classpath, String main) {
+        var buf = new StringBuilder();
+        buf.append(javaHome.getAbsolutePath()).append('\n');
+        // The archive is only valid for the exact JDK build that made it
+        stamp(buf, new File(javaHome, "release"));
+        stamp(buf, new File(javaHome, "lib/modules"));
+        for (var entry : classpath.split(File.pathSeparator))
+            stamp(buf, new File(entry));
+        buf.append(main).append('\n');
+
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(buf.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            return Util.sneak(e);
+        }
+    }
+
+    private static void stamp(StringBuilder buf, File file) {
+        buf.append(file.getAbsolutePath()).append(':').append(file.length()).append(':').append(file.lastModified()).append('\n');
+    }
+
+    /** @return The feature version of the given JDK from its release file, or 0 if it is unknown */
+    private static int javaVersion(File javaHome) {
+        var release = new File(javaHome, "release");
+        if (!release.isFile())
+            return 0;
+
+        try {
+            for (var line : Files.readAllLines(release.toPath(), StandardCharsets.UTF_8)) {
+                if (!line.startsWith("JAVA_VERSION="))
+                    continue;
+
+                var version = line.substring("JAVA_VERSION=".length()).replace("\"", "").trim();
+                if (version.startsWith("1."))
+                    version = version.substring(2);
+                int end = 0;
+                while (end < version.length() && Character.isDigit(version.charAt(end)))
+                    end++;
+                return end == 0 ? 0 : Integer.parseInt(version.substring(0, end));
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Failed to read " + release.getAbsolutePath() + ": " + e.getMessage());
+        }
+        return 0;
+    }
+
+    /** The class data sharing arguments for one JVM. */
+    public static final class Session {
+        private final List<String> args;
+        private final @Nullable File archive;
+        private final @Nullable File temp;
+        private final FileLocks.@Nullable Held lock;
+
+        private Session(List<String> args, @Nullable File archive, @Nullable File temp, FileLocks.@Nullable Held lock) {
+            this.args = args;
+            this.archive = archive;
+            this.temp = temp;
+            this.lock = lock;
+        }
+
+        /** @return The JVM arguments to add */
+        public List<String> args() {
+            return this.args;
+        }
+
+        /**
+         * Publishes the archive if this JVM was making one.
+         *
+         * @param success If the JVM exited normally, a failed run may have written a partial archive
+         */
+        public void finish(boolean success) {
+            if (this.lock == null)
+                return;
+
+            try {
+                if (success && this.temp.length() > 0) {
+                    Files.move(this.temp.toPath(), this.archive.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    LOGGER.debug("Created class data sharing archive " + this.archive.getName());
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Failed to save class data sharing archive: " + e.getMessage());
+            } finally {
+                this.temp.delete();
+                this.lock.close();
+            }
+
+            clean(this.archive.getParentFile());
+        }
+    }
+
+    /** Deletes archives that haven't been used in a while, and all but the most recently used ones. */
+    private static void clean(File dir) {
+        long cutoff = System.currentTimeMillis() - MAX_AGE;
+        // Left behind by JVMs that were killed while dumping
+        var temps = dir.listFiles((_, name) -> name.endsWith(".tmp"));
+        if (temps != null) {
+            for (var temp : temps) {
+                if (temp.lastModified() < cutoff)
+                    temp.delete();
+            }
+        }
+
+        var archives = dir.listFiles((_, name) -> name.endsWith(".jsa"));
+        if (archives == null)
+            return;
+
+        Arrays.sort(archives, Comparator.comparingLong(File::lastModified).reversed());
+        for (int x = 0; x < archives.length; x++) {
+            var archive = archives[x];
+            if (x < MAX_ARCHIVES && archive.lastModified() >= cutoff)
+                continue;
+
+            // Skip anything that is being made right now, JVMs that already mapped it keep working either way
+            try (var lock = FileLocks.tryLock(FileLocks.lockFile(archive))) {
+                if (lock != null && archive.delete())
+                    LOGGER.debug("Deleted unused class data sharing archive " + archive.getName());
+            }
+        }
+    }
+}
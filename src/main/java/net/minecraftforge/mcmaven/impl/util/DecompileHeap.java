@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.classfile.Attributes;
+import java.lang.classfile.ClassFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.ZipFile;
+
+import org.jetbrains.annotations.Nullable;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+/**
+ * Picks the heap size of a decompile before it starts, instead of finding out it was too small five minutes in.
+ * <p>
+ * The first guess comes from the size of the input jar: how many classes there are, how much bytecode, and how big
+ * the largest method is, since that is what the decompiler's method graphs scale with. Every run writes a GC log, and
+ * the most live data seen after a collection is saved in the cache, so later runs with the same decompiler size the
+ * heap from what it actually needed.
+ * <p>
+ * Running out of memory only tells us the whole heap wasn't enough, so it is saved as a lower bound, which the next
+ * successful run replaces with what it really needed. Nothing is saved unless {@link #init(File)} is called.
+ */
+public final class DecompileHeap {
+    private DecompileHeap() { }
+
+    private static final long MB = 1L << 20;
+    private static final long MIN = 1024 * MB;
+    // The JVM, the decompiler's own classes and its output buffers, regardless of input
+    private static final long OVERHEAD = 512 * MB;
+    // Live data can double between collections, and a little more keeps the GC from thrashing
+    private static final double HEADROOM = 2.5;
+    private static final Pattern GC_LINE = Pattern.compile("(\\d+)([KMG])->(\\d+)([KMG])\\((\\d+)([KMG])\\)");
+
+    private static volatile @Nullable File root = null;
+
+    /**
+     * Enables learning from previous runs.
+     *
+     * @param dir The directory to keep the history of each decompiler in
+     */
+    public static void init(File dir) {
+        root = dir;
+    }
+
+    /** What we know about the input jar. */
+    public record Stats(int classes, long bytecode, int largestMethod) {}
+
+    /** The heap picked for one decompile. */
+    public record Estimate(File tool, @Nullable File history, Stats stats, long max, long limit) {
+        /**
+         * @param javaVersion The version of the JVM that will run the decompiler
+         * @param gcLog       The file to write the GC log to, for {@link #record(Estimate, File, boolean)}
+         * @return The JVM arguments setting the heap size, GC and GC log
+         */
+        public List<String> args(int javaVersion, File gcLog) {
+            var ret = new ArrayList<String>();
+            ret.add("-Xmx" + (this.max / MB) + 'M');
+            // Start at half, so the heap doesn't have to grow through every size on the way up
+            ret.add("-Xms" + (this.max / MB / 2) + 'M');
+            // The decompiler is a batch job, so throughput matters more than pause times
+            ret.add("-XX:+UseParallelGC");
+            if (javaVersion >= 9)
+                ret.add("-Xlog:gc:file=\"" + gcLog.getAbsolutePath() + '"');
+            else
+                ret.add("-Xloggc:" + gcLog.getAbsolutePath());
+            return ret;
+        }
+
+        /** @return If a bigger heap is allowed on this machine */
+        public boolean canGrow() {
+            return this.max < this.limit;
+        }
+
+        /** @return A larger estimate, for retrying after running out of memory */
+        public Estimate grow() {
+            return new Estimate(this.tool, this.history, this.stats, Math.min(this.limit, this.max * 3 / 2), this.limit);
+        }
+    }
+
+    /**
+     * Estimates the heap needed to decompile the given jar.
+     *
+     * @param tool  The decompiler jar
+     * @param input The jar being decompiled
+     * @return The estimate, or {@code null} if the input can't be read
+     */
+    public static @Nullable Estimate estimate(File tool, File input) {
+        var stats = stats(input);
+        if (stats == null)
+            return null;
+
+        // Named after the jar, which has the version in it, as the tool itself may be in the user's own repository
+        var dir = root;
+        var history = dir == null ? null : new File(dir, tool.getName() + ".heap.json");
+        var learned = history == null ? null : load(history);
+
+        long max;
+        if (learned != null && learned.bytecode > 0) {
+            // Scale what this decompiler needed last time by how much bigger this input is
+            long live = (long) (learned.live * ((double) stats.bytecode / learned.bytecode));
+            // A lower bound was the whole heap, not live data, so grow it the same way as a retry would
+            max = learned.lowerBound ? live * 3 / 2 : OVERHEAD + (long) (live * HEADROOM);
+        } else {
+            // No history, these are rough numbers from decompiling Minecraft with Forge/Vineflower
+            max = OVERHEAD
+                + stats.classes * 32L * 1024
+                + stats.bytecode * 128
+                + stats.largestMethod * 16L * 1024;
+        }
+
+        // Leave a quarter of the machine for everything else
+        long limit = Math.max(MIN, MemoryBudget.physicalMemory() / 4 * 3);
+        max = Math.min(limit, Math.max(MIN, roundUp(max)));
+
+        LOGGER.debug("Decompile heap for " + input.getName() + ": " + (max / MB) + "MB"
+            + " (" + stats.classes + " classes, " + (stats.bytecode / 1024) + "KB bytecode, largest method " + stats.largestMethod + " bytes"
+            + (learned == null ? ")" : ", from previous runs)"));
+
+        return new Estimate(tool, history, stats, max, limit);
+    }
+
+    private static long roundUp(long value) {
+        return (value + 256 * MB - 1) / (256 * MB) * (256 * MB);
+    }
+
+    private static @Nullable Stats stats(File input) {
+        if (!input.isFile())
+            return null;
+
+        int classes = 0;
+        long bytecode = 0;
+        int largest = 0;
+        try (var zip = new ZipFile(input)) {
+            var entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                var entry = entries.nextElement();
+                if (!entry.getName().endsWith(".class"))
+                    continue;
+
+                byte[] data;
+                try (var is = zip.getInputStream(entry)) {
+                    data = is.readAllBytes();
+                }
+
+                classes++;
+                bytecode += data.length;
+                try {
+                    for (var method : ClassFile.of().parse(data).methods()) {
+                        var code = method.findAttribute(Attributes.code());
+                        if (code.isPresent())
+                            largest = Math.max(largest, code.get().codeLength());
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Obfuscators do strange things, the size still counts
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Failed to read " + input.getAbsolutePath() + ": " + e.getMessage());
+            return null;
+        }
+
+        return new Stats(classes, bytecode, largest);
+    }
+
+    /**
+     * Learns from a finished decompile, using the most live data seen in its GC log.
+     *
+     * @param estimate    The estimate the decompile was run with
+     * @param gcLog       The GC log it wrote
+     * @param outOfMemory If it ran out of memory, in which case it needed more than the whole heap
+     */
+    public static void record(Estimate estimate, File gcLog, boolean outOfMemory) {
+        var history = estimate.history();
+        if (history == null)
+            return;
+
+        long live = outOfMemory ? estimate.max() : peakLive(gcLog);
+        if (live <= 0)
+            return;
+
+        var data = load(history);
+        // A lower bound is only a guess, what a finished run actually used is always better
+        if (data != null && data.bytecode > 0 && (outOfMemory || !data.lowerBound)) {
+            // Keep the worst case we've seen, so we don't shrink back into an out of memory
+            long previous = (long) (data.live * ((double) estimate.stats().bytecode() / data.bytecode));
+            if (previous >= live)
+                return;
+        }
+
+        data = new History();
+        data.bytecode = estimate.stats().bytecode();
+        data.live = live;
+        data.lowerBound = outOfMemory;
+        var json = Util.GSON.toJson(data);
+        try {
+            Util.publish(history, tmp -> Files.writeString(tmp.toPath(), json, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            LOGGER.debug("Failed to save decompile heap history: " + e.getMessage());
+        }
+    }
+
+    /** @return The most heap in use after a collection, or 0 if the log has no collections */
+    private static long peakLive(File gcLog) {
+        if (!gcLog.isFile())
+            return 0;
+
+        long ret = 0;
+        try {
+            for (var line : Files.readAllLines(gcLog.toPath(), StandardCharsets.UTF_8)) {
+                var matcher = GC_LINE.matcher(line);
+                if (matcher.find())
+                    ret = Math.max(ret, size(matcher.group(3), matcher.group(4)));
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Failed to read GC log: " + e.getMessage());
+        }
+        return ret;
+    }
+
+    private static long size(String value, String unit) {
+        long ret = Long.parseLong(value);
+        return switch (unit) {
+            case "K" -> ret << 10;
+            case "M" -> ret << 20;
+            case "G" -> ret << 30;
+            default -> ret;
+        };
+    }
+
+    private static @Nullable History load(File file) {
+        if (!file.isFile())
+            return null;
+
+        try {
+            return Util.GSON.fromJson(Files.readString(file.toPath(), StandardCharsets.UTF_8), History.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static final class History {
+        long bytecode;
+        long live;
+        // Set when we ran out of memory, so all we know is that it needs more than this
+        boolean lowerBound;
+    }
+}
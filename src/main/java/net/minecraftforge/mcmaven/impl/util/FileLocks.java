@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.minecraftforge.util.file.FileUtils;
+import net.minecraftforge.util.hash.HashFunction;
+
+/**
+ * Locks backed by a file on disk, so they are shared with other Mavenizer processes using the same cache.
+ * <p>
+ * The JVM does not allow a single process to lock the same file twice, so threads in this process are
+ * serialized with a normal lock first, and only the outermost holder takes the file lock.
+ * <p>
+ * Task outputs are locked through {@link #lockOutput(File)}, which keeps the lock until the enclosing task
+ * finishes, see {@link #mark()} and {@link #release(int)}. Cache hits take a shared lock through
+ * {@link #readOutput(File)} the same way, so the entry can't be evicted or rebuilt while it is being used.
+ * <p>
+ * Lock files for anything outside of the cache, such as the output repository, are kept in the cache's
+ * {@code locks} directory, so they don't end up next to the files users publish.
+ */
+public final class FileLocks {
+    private FileLocks() { }
+
+    private static final Map<File, ReentrantReadWriteLock> LOCAL = new ConcurrentHashMap<>();
+    private static final Map<File, Shared> SHARED = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Deque<Held>> HELD = ThreadLocal.withInitial(ArrayDeque::new);
+    private static volatile @Nullable File cacheRoot = null;
+
+    /**
+     * Keeps the lock files of everything outside of the cache in the cache.
+     *
+     * @param root The cache directory, its {@code locks} directory holds the lock files
+     */
+    public static void init(File root) {
+        cacheRoot = root.getAbsoluteFile();
+    }
+
+    /**
+     * Blocks until the lock for the given file is acquired.
+     *
+     * @param file The lock file, created if it does not exist
+     * @return The held lock, which must be closed to release it
+     */
+    public static Held lock(File file) {
+        var key = file.getAbsoluteFile();
+        var local = LOCAL.computeIfAbsent(key, _ -> new ReentrantReadWriteLock());
+        // A read lock can't be upgraded, so this would wait on ourselves forever
+        if (local.getReadHoldCount() > 0 && !local.isWriteLockedByCurrentThread())
+            throw new IllegalStateException("Can not lock " + key + " while reading it");
+        var write = local.writeLock();
+        write.lock();
+
+        // We already hold the file lock further up the stack
+        if (local.getWriteHoldCount() > 1)
+            return new Held(key, write, null);
+
+        FileChannel channel = null;
+        try {
+            FileUtils.ensureParent(key);
+            channel = FileChannel.open(key.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.lock();
+            return new Held(key, write, channel);
+        } catch (IOException | RuntimeException e) {
+            try {
+                if (channel != null)
+                    channel.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            write.unlock();
+            return Util.sneak(e);
+        }
+    }
+
+    /**
+     * Blocks until a shared lock for the given file is acquired. Any number of threads and processes can hold the
+     * shared lock at once, but not while anyone holds the normal one.
+     *
+     * @param file The lock file, created if it does not exist
+     * @return The held lock, which must be closed to release it
+     */
+    public static Held lockShared(File file) {
+        var key = file.getAbsoluteFile();
+        var local = LOCAL.computeIfAbsent(key, _ -> new ReentrantReadWriteLock());
+        var read = local.readLock();
+        read.lock();
+
+        // Our own normal lock already keeps everyone else out
+        if (local.isWriteLockedByCurrentThread())
+            return new Held(key, read, null);
+
+        // Only one file lock per process, shared by every thread reading it
+        var shared = SHARED.computeIfAbsent(key, Shared::new);
+        try {
+            shared.acquire();
+            return new Held(key, read, shared);
+        } catch (IOException | RuntimeException e) {
+            read.unlock();
+            return Util.sneak(e);
+        }
+    }
+
+    /**
+     * Attempts to acquire the lock for the given file without waiting.
+     *
+     * @param file The lock file, created if it does not exist
+     * @return The held lock, or {@code null} if another thread or process holds it
+     */
+    public static @Nullable Held tryLock(File file) {
+        var key = file.getAbsoluteFile();
+        var local = LOCAL.computeIfAbsent(key, _ -> new ReentrantReadWriteLock());
+        var write = local.writeLock();
+        if (!write.tryLock())
+            return null;
+
+        if (local.getWriteHoldCount() > 1)
+            return new Held(key, write, null);
+
+        FileChannel channel = null;
+        try {
+            FileUtils.ensureParent(key);
+            channel = FileChannel.open(key.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (channel.tryLock() != null)
+                return new Held(key, write, channel);
+            channel.close();
+            write.unlock();
+            return null;
+        } catch (IOException | RuntimeException e) {
+            try {
+                if (channel != null)
+                    channel.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            write.unlock();
+            return Util.sneak(e);
+        }
+    }
+
+    /**
+     * Gets the lock file used to guard the given output file.
+     *
+     * @param output The file being guarded
+     * @return A sibling file with the {@code .lock} extension for files in the cache, or a file named after the hash
+     *         of the path in the cache's {@code locks} directory for anything else
+     */
+    public static File lockFile(File output) {
+        var path = output.getAbsoluteFile().toPath().normalize();
+        var root = cacheRoot;
+        if (root == null || path.startsWith(root.toPath().normalize()))
+            return new File(path + ".lock");
+
+        var hash = HashFunction.sha1().hash(path.toString());
+        return new File(root, "locks/" + hash.substring(0, 2) + '/' + hash + ".lock");
+    }
+
+    /**
+     * Locks the given output for the current thread, until released by {@link #release(int)}.
+     * <p>
+     * A shared lock this thread took on the same output through {@link #readOutput(File)}, such as for an earlier
+     * cache hit in the same task, is given up first, as it can't be upgraded. It stays on the stack so markers still
+     * line up, and is skipped when released.
+     *
+     * @param output The output file
+     */
+    public static void lockOutput(File output) {
+        var key = lockFile(output).getAbsoluteFile();
+        var held = HELD.get();
+        for (var lock : held) {
+            if (lock.key.equals(key) && lock.local instanceof ReentrantReadWriteLock.ReadLock)
+                lock.close();
+        }
+        held.push(lock(key));
+    }
+
+    /**
+     * Takes a shared lock on the given output for the current thread, until released by {@link #release(int)}.
+     *
+     * @param output The output file
+     */
+    public static void readOutput(File output) {
+        HELD.get().push(lockShared(lockFile(output)));
+    }
+
+    /** @return A marker for the output locks currently held by this thread */
+    public static int mark() {
+        return HELD.get().size();
+    }
+
+    /**
+     * Releases every output lock taken by this thread since the given marker.
+     *
+     * @param mark The value of {@link #mark()} from before the locks were taken
+     */
+    public static void release(int mark) {
+        var held = HELD.get();
+        while (held.size() > mark)
+            held.pop().close();
+    }
+
+    public static final class Held implements AutoCloseable {
+        private final File key;
+        private final Lock local;
+        private final @Nullable Closeable file;
+        private boolean closed = false;
+
+        private Held(File key, Lock local, @Nullable Closeable file) {
+            this.key = key;
+            this.local = local;
+            this.file = file;
+        }
+
+        @Override
+        public void close() {
+            if (this.closed)
+                return;
+            this.closed = true;
+
+            try {
+                // Closing the channel releases its lock
+                if (this.file != null)
+                    this.file.close();
+            } catch (IOException e) {
+                Util.sneak(e);
+            } finally {
+                this.local.unlock();
+            }
+        }
+    }
+
+    private static final class Shared implements Closeable {
+        private final File file;
+        private int count = 0;
+        private @Nullable FileChannel channel = null;
+
+        private Shared(File file) {
+            this.file = file;
+        }
+
+        private synchronized void acquire() throws IOException {
+            if (this.count++ > 0)
+                return;
+
+            FileChannel channel = null;
+            try {
+                FileUtils.ensureParent(this.file);
+                channel = FileChannel.open(this.file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.lock(0, Long.MAX_VALUE, true);
+                this.channel = channel;
+            } catch (IOException | RuntimeException e) {
+                this.count--;
+                if (channel != null)
+                    channel.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (--this.count > 0 || this.channel == null)
+                return;
+
+            var channel = this.channel;
+            this.channel = null;
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.util;
+
+import java.io.File;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the steps of a run, so allocation and GC pressure in a recording can be tied back
+ * to what Mavenizer was doing at the time. They cost nothing unless a recording with them enabled is running.
+ */
+public final class JfrEvents {
+    private JfrEvents() { }
+
+    private static final String CATEGORY = "Minecraft Mavenizer";
+
+    @Name("net.minecraftforge.mavenizer.Task")
+    @Label("Task")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class TaskExecution extends Event {
+        @Label("Name")
+        public String name;
+
+        @Label("Output")
+        public String output;
+
+        @Label("Output Size")
+        @DataAmount
+        public long outputBytes;
+
+        @Label("Success")
+        public boolean success;
+    }
+
+    @Name("net.minecraftforge.mavenizer.CacheCheck")
+    @Label("Cache Check")
+    @Description("Hashing the inputs of a task to see if its output is up to date, including waiting for other processes")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class CacheCheck extends Event {
+        @Label("Output")
+        public String output;
+
+        @Label("Cache Hit")
+        public boolean hit;
+    }
+
+    @Name("net.minecraftforge.mavenizer.Download")
+    @Label("Download")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class Download extends Event {
+        @Label("Repository")
+        public String repository;
+
+        @Label("Path")
+        public String path;
+
+        @Label("Size")
+        @DataAmount
+        public long bytes;
+
+        @Label("Cache Hit")
+        public boolean hit;
+    }
+
+    @Name("net.minecraftforge.mavenizer.ChildProcess")
+    @Label("Child Process")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class ChildProcess extends Event {
+        @Label("Command")
+        public String command;
+
+        @Label("PID")
+        public long pid;
+
+        @Label("Exit Code")
+        public int exitCode;
+    }
+
+    @Name("net.minecraftforge.mavenizer.ZipTransform")
+    @Label("Zip Transform")
+    @Description("Reading one archive and writing another, such as renaming or patching sources")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class ZipTransform extends Event implements AutoCloseable {
+        @Label("Transform")
+        public String transform;
+
+        @Label("Input")
+        public String input;
+
+        @Label("Output")
+        public String output;
+
+        @Label("Input Size")
+        @DataAmount
+        public long inputBytes;
+
+        @Label("Output Size")
+        @DataAmount
+        public long outputBytes;
+
+        private transient File inputFile;
+        private transient File outputFile;
+
+        private transient String transformName;
+
+        /** Records the transform once it has finished, closing it more than once does nothing. */
+        @Override
+        public void close() {
+            if (this.inputFile == null)
+                return;
+
+            this.end();
+            this.inputBytes = this.inputFile.length();
+            this.outputBytes = this.outputFile.length();
+            Metrics.count(Metrics.ZIP_BYTES, this.inputBytes, "transform", this.transformName, "direction", "read");
+            Metrics.count(Metrics.ZIP_BYTES, this.outputBytes, "transform", this.transformName, "direction", "written");
+            if (this.shouldCommit())
+                this.commit();
+            this.inputFile = null;
+        }
+    }
+
+    /**
+     * Starts timing a zip transform, which is recorded when it is closed.
+     *
+     * @param transform What is being done, such as {@code rename}
+     * @param input     The archive being read
+     * @param output    The archive being written
+     */
+    public static ZipTransform zip(String transform, File input, File output) {
+        var event = new ZipTransform();
+        if (event.isEnabled()) {
+            event.transform = transform;
+            event.input = input.getAbsolutePath();
+            event.output = output.getAbsolutePath();
+        }
+        // Sizes are always needed for the metrics
+        event.transformName = transform;
+        event.inputFile = input;
+        event.outputFile = output;
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.jetbrains.annotations.Nullable;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+/**
+ * Limits how much memory the heavy steps of a run, such as decompiling and recompiling, may use at once.
+ * <p>
+ * The budget is split into fixed size slots, each one a lock file in the cache directory. A step declares how much
+ * memory it needs and holds that many slots while it runs, so every Mavenizer process sharing the cache also shares
+ * the budget. A step that needs more than the whole budget runs once it has every slot, in other words on its own.
+ * <p>
+ * The number of slots is stored next to the locks, and read again every time slots are picked, so every process
+ * agrees on it. The last budget given explicitly wins, and a process without one uses whatever is stored.
+ * <p>
+ * Nothing is limited unless {@link #init(File, long, boolean)} is called.
+ */
+public final class MemoryBudget {
+    private MemoryBudget() { }
+
+    private static final long SLOT = 256L << 20;
+    private static final long RETRY = 500;
+
+    /** The memory a forked tool is assumed to need if it doesn't set its heap size. */
+    public static final long DEFAULT_TOOL = 512L << 20;
+
+    private static volatile @Nullable File root = null;
+    private static final ThreadLocal<Lease> HELD = new ThreadLocal<>();
+    private static final Lease NOOP = new Lease(List.of());
+
+    /**
+     * Enables the budget.
+     *
+     * @param dir      The directory to keep the slot locks in, shared by every process using the same budget
+     * @param budget   The total number of bytes, see {@link #physicalMemory()}
+     * @param explicit If the budget was given by the user, and so should replace the one stored in the directory
+     */
+    public static void init(File dir, long budget, boolean explicit) {
+        root = dir;
+        try (var _ = FileLocks.lock(new File(dir, "alloc.lock"))) {
+            int slots = explicit ? 0 : readSlots(dir);
+            if (slots == 0) {
+                slots = (int) Math.max(1, budget / SLOT);
+                var data = Integer.toString(slots);
+                Util.publish(new File(dir, "slots"), tmp -> Files.writeString(tmp.toPath(), data, StandardCharsets.UTF_8));
+            }
+            LOGGER.debug("Memory budget: " + format(slots * SLOT));
+        } catch (IOException e) {
+            Util.sneak(e);
+        }
+    }
+
+    /** @return The number of slots stored in the directory, or 0 if there isn't a valid one */
+    private static int readSlots(File dir) {
+        var file = new File(dir, "slots");
+        if (!file.isFile())
+            return 0;
+
+        try {
+            return Math.max(0, Integer.parseInt(Files.readString(file.toPath(), StandardCharsets.UTF_8).trim()));
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.debug("Invalid memory budget in " + file.getAbsolutePath() + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /** @return The physical memory of this machine, or 8GB if it is not known */
+    public static long physicalMemory() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os)
+            return os.getTotalMemorySize();
+        return 8L << 30;
+    }
+
+    /**
+     * Gets the heap a forked JVM will use, from its memory arguments.
+     *
+     * @param jvm      The JVM arguments
+     * @param fallback The size to assume if the arguments don't say
+     * @return The larger of the maximum and initial heap size, or the fallback
+     */
+    public static long heapOf(List<String> jvm, long fallback) {
+        long ret = 0;
+        for (var arg : jvm) {
+            String value = null;
+            if (arg.startsWith("-Xmx") || arg.startsWith("-Xms"))
+                value = arg.substring(4);
+            else if (arg.startsWith("-XX:MaxHeapSize="))
+                value = arg.substring("-XX:MaxHeapSize=".length());
+
+            if (value != null) {
+                try {
+                    ret = Math.max(ret, parse(value));
+                } catch (NumberFormatException e) {
+                    LOGGER.debug("Unknown heap size: " + arg);
+                }
+            }
+        }
+        return ret == 0 ? fallback : ret;
+    }
+
+    private static long parse(String value) {
+        var str = value.trim().toLowerCase(Locale.ROOT);
+        int shift = switch (str.isEmpty() ? ' ' : str.charAt(str.length() - 1)) {
+            case 'k' -> 10;
+            case 'm' -> 20;
+            case 'g' -> 30;
+            case 't' -> 40;
+            default -> 0;
+        };
+        if (shift != 0)
+            str = str.substring(0, str.length() - 1);
+        return Long.parseLong(str) << shift;
+    }
+
+    /**
+     * Blocks until the given amount of memory is available, and reserves it until the lease is closed.
+     * A thread that already holds a lease is not limited again, its memory is already accounted for.
+     *
+     * @param what  What the memory is for, used in log messages
+     * @param bytes The memory needed
+     * @return The lease, which must be closed to give the memory back
+     */
+    public static Lease acquire(String what, long bytes) {
+        var dir = root;
+        if (dir == null || HELD.get() != null)
+            return NOOP;
+
+        boolean waited = false;
+        while (true) {
+            int needed;
+            // Only one thread, in any process, picks slots at a time, so two steps can't each hold half of what they need
+            try (var _ = FileLocks.lock(new File(dir, "alloc.lock"))) {
+                // Another process may have changed the budget since we last looked
+                int total = Math.max(1, readSlots(dir));
+                needed = (int) Math.min(total, Math.max(1, (bytes + SLOT - 1) / SLOT));
+                var held = new ArrayList<FileLocks.Held>(needed);
+                for (int x = 0; x < total && held.size() < needed; x++) {
+                    var lock = FileLocks.tryLock(new File(dir, "slot-" + x + ".lock"));
+                    if (lock != null)
+                        held.add(lock);
+                }
+
+                if (held.size() == needed) {
+                    if (waited)
+                        LOGGER.debug("Acquired " + format(needed * SLOT) + " of memory for " + what);
+                    var lease = new Lease(held);
+                    HELD.set(lease);
+                    return lease;
+                }
+
+                for (var lock : held)
+                    lock.close();
+            }
+
+            if (!waited) {
+                LOGGER.info("Waiting for " + format(needed * SLOT) + " of memory for " + what);
+                waited = true;
+            }
+
+            try {
+                Thread.sleep(RETRY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Util.sneak(e);
+            }
+        }
+    }
+
+    private static String format(long bytes) {
+        return bytes >= 1L << 30
+            ? String.format(Locale.ROOT, "%.1fGB", bytes / (double) (1L << 30))
+            : (bytes >> 20) + "MB";
+    }
+
+    /** Reserved memory, closing it gives the memory back. */
+    public static final class Lease implements AutoCloseable {
+        private final List<FileLocks.Held> slots;
+
+        private Lease(List<FileLocks.Held> slots) {
+            this.slots = slots;
+        }
+
+        @Override
+        public void close() {
+            if (this == NOOP)
+                return;
+
+            HELD.remove();
+            for (var slot : this.slots)
+                slot.close();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+/**
+ * Counters and histograms collected over a single run. A short summary is logged at the end of the run, and the full
+ * set can be written in the Prometheus text format with {@code --metrics-out}, for the node exporter textfile collector.
+ * <p>
+ * Everything here is a handful of atomic adds, so it is always on.
+ */
+public final class Metrics {
+    private Metrics() { }
+
+    public static final String TASK_DURATION = "mavenizer_task_duration_seconds";
+    public static final String CACHE_CHECKS = "mavenizer_cache_checks_total";
+    public static final String DOWNLOADED_BYTES = "mavenizer_downloaded_bytes_total";
+    public static final String HASHED_BYTES = "mavenizer_hashed_bytes_total";
+    public static final String ZIP_BYTES = "mavenizer_zip_bytes_total";
+    public static final String PROCESSES = "mavenizer_processes_total";
+    public static final String PROCESS_WALL = "mavenizer_process_wall_seconds_total";
+    public static final String PROCESS_CPU = "mavenizer_process_cpu_seconds_total";
+    public static final String PEAK_HEAP = "mavenizer_peak_heap_bytes";
+
+    private static final Map<String, String> HELP = Map.of(
+        TASK_DURATION, "Time spent executing tasks, by task type",
+        CACHE_CHECKS, "Task cache checks, by task type and result",
+        DOWNLOADED_BYTES, "Bytes downloaded, by repository",
+        HASHED_BYTES, "Bytes read to compute file hashes",
+        ZIP_BYTES, "Bytes read and written by zip transforms, by transform and direction",
+        PROCESSES, "Child processes started, by command",
+        PROCESS_WALL, "Wall clock time of child processes, by command",
+        PROCESS_CPU, "CPU time used by child processes, by command",
+        PEAK_HEAP, "Peak heap usage of this JVM"
+    );
+
+    /** Upper bounds of the task duration buckets, in seconds. */
+    private static final double[] BUCKETS = { 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30, 60, 120, 300 };
+
+    private static final Map<String, Map<String, LongAdder>> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, DoubleAdder>> SECONDS = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, Histogram>> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    /**
+     * Adds to a counter.
+     *
+     * @param name   The metric name
+     * @param amount The amount to add
+     * @param labels Pairs of label names and values
+     */
+    public static void count(String name, long amount, String... labels) {
+        COUNTERS.computeIfAbsent(name, _ -> new ConcurrentHashMap<>())
+            .computeIfAbsent(labels(labels), _ -> new LongAdder())
+            .add(amount);
+    }
+
+    /** Adds a duration, in nanoseconds, to a counter that is reported in seconds. */
+    public static void time(String name, long nanos, String... labels) {
+        SECONDS.computeIfAbsent(name, _ -> new ConcurrentHashMap<>())
+            .computeIfAbsent(labels(labels), _ -> new DoubleAdder())
+            .add(nanos / 1_000_000_000D);
+    }
+
+    /** Records a duration, in nanoseconds, in a histogram that is reported in seconds. */
+    public static void observe(String name, long nanos, String... labels) {
+        HISTOGRAMS.computeIfAbsent(name, _ -> new ConcurrentHashMap<>())
+            .computeIfAbsent(labels(labels), _ -> new Histogram())
+            .observe(nanos / 1_000_000_000D);
+    }
+
+    /** @return The kind of task, which is its name without the side or artifact in brackets */
+    public static String taskType(String name) {
+        int idx = name.indexOf('[');
+        return idx < 0 ? name : name.substring(0, idx);
+    }
+
+    private static String labels(String... labels) {
+        if (labels.length == 0)
+            return "";
+
+        var buf = new StringBuilder();
+        for (int x = 0; x + 1 < labels.length; x += 2) {
+            if (!buf.isEmpty())
+                buf.append(',');
+            buf.append(labels[x]).append("=\"");
+            for (var c : labels[x + 1].toCharArray()) {
+                switch (c) {
+                    case '\\' -> buf.append("\\\\");
+                    case '"' -> buf.append("\\\"");
+                    case '\n' -> buf.append("\\n");
+                    default -> buf.append(c);
+                }
+            }
+            buf.append('"');
+        }
+        return buf.toString();
+    }
+
+    private static long peakHeap() {
+        long ret = 0;
+        for (var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            var peak = pool.getPeakUsage();
+            if (pool.getType() == MemoryType.HEAP && peak != null)
+                ret += peak.getUsed();
+        }
+        return ret;
+    }
+
+    /** Logs a short summary of the run, does nothing if no tasks ran. */
+    public static void summary() {
+        var tasks = HISTOGRAMS.getOrDefault(TASK_DURATION, Map.of());
+        if (tasks.isEmpty())
+            return;
+
+        long hits = 0, misses = 0;
+        for (var entry : COUNTERS.getOrDefault(CACHE_CHECKS, Map.of()).entrySet()) {
+            if (entry.getKey().endsWith("result=\"hit\""))
+                hits += entry.getValue().sum();
+            else
+                misses += entry.getValue().sum();
+        }
+
+        LOGGER.info("Metrics:");
+        LOGGER.push();
+        LOGGER.info("Cache:      " + hits + " hits, " + misses + " misses");
+        LOGGER.info("Downloaded: " + format(sum(COUNTERS.get(DOWNLOADED_BYTES))));
+        LOGGER.info("Hashed:     " + format(sum(COUNTERS.get(HASHED_BYTES))));
+        LOGGER.info("Zipped:     " + format(sum(COUNTERS.get(ZIP_BYTES))));
+        LOGGER.info(String.format(Locale.ROOT, "Processes:  %d, %.1fs wall, %.1fs cpu",
+            sum(COUNTERS.get(PROCESSES)), seconds(SECONDS.get(PROCESS_WALL)), seconds(SECONDS.get(PROCESS_CPU))));
+        LOGGER.info("Peak heap:  " + format(peakHeap()));
+
+        // The slowest kinds of tasks are what people care about
+        var slowest = tasks.entrySet().stream()
+            .sorted((a, b) -> Double.compare(b.getValue().sum.sum(), a.getValue().sum.sum()))
+            .limit(5)
+            .toList();
+        LOGGER.info("Slowest tasks:");
+        LOGGER.push();
+        for (var entry : slowest) {
+            var type = entry.getKey().substring("type=\"".length(), entry.getKey().length() - 1);
+            var histogram = entry.getValue();
+            LOGGER.info(String.format(Locale.ROOT, "%-24s %4d runs, %.1fs", type, histogram.count.sum(), histogram.sum.sum()));
+        }
+        LOGGER.pop();
+        LOGGER.pop();
+    }
+
+    private static long sum(Map<String, LongAdder> values) {
+        long ret = 0;
+        if (values != null) {
+            for (var value : values.values())
+                ret += value.sum();
+        }
+        return ret;
+    }
+
+    private static double seconds(Map<String, DoubleAdder> values) {
+        double ret = 0;
+        if (values != null) {
+            for (var value : values.values())
+                ret += value.sum();
+        }
+        return ret;
+    }
+
+    private static String format(long bytes) {
+        if (bytes < 1024)
+            return bytes + " B";
+        int unit = (63 - Long.numberOfLeadingZeros(bytes)) / 10;
+        return String.format(Locale.ROOT, "%.1f %sB", bytes / (double) (1L << (unit * 10)), " KMGTPE".charAt(unit));
+    }
+
+    /** Writes every metric to the given file, in the Prometheus text exposition format. */
+    public static void write(File file) {
+        var buf = new StringBuilder();
+
+        for (var entry : new TreeMap<>(COUNTERS).entrySet()) {
+            header(buf, entry.getKey(), "counter");
+            for (var value : new TreeMap<>(entry.getValue()).entrySet())
+                sample(buf, entry.getKey(), value.getKey(), Long.toString(value.getValue().sum()));
+        }
+
+        for (var entry : new TreeMap<>(SECONDS).entrySet()) {
+            header(buf, entry.getKey(), "counter");
+            for (var value : new TreeMap<>(entry.getValue()).entrySet())
+                sample(buf, entry.getKey(), value.getKey(), number(value.getValue().sum()));
+        }
+
+        for (var entry : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            var name = entry.getKey();
+            header(buf, name, "histogram");
+            for (var value : new TreeMap<>(entry.getValue()).entrySet()) {
+                var labels = value.getKey();
+                var histogram = value.getValue();
+                var prefix = labels.isEmpty() ? "" : labels + ',';
+                long cumulative = 0;
+                for (int x = 0; x < BUCKETS.length; x++) {
+                    cumulative += histogram.buckets.get(x);
+                    sample(buf, name + "_bucket", prefix + "le=\"" + number(BUCKETS[x]) + '"', Long.toString(cumulative));
+                }
+                sample(buf, name + "_bucket", prefix + "le=\"+Inf\"", Long.toString(histogram.count.sum()));
+                sample(buf, name + "_sum", labels, number(histogram.sum.sum()));
+                sample(buf, name + "_count", labels, Long.toString(histogram.count.sum()));
+            }
+        }
+
+        header(buf, PEAK_HEAP, "gauge");
+        sample(buf, PEAK_HEAP, "", Long.toString(peakHeap()));
+
+        try {
+            // The textfile collector may read at any time, so never let it see a partial file
+            Util.publish(file, tmp -> Files.writeString(tmp.toPath(), buf, StandardCharsets.UTF_8));
+            LOGGER.info("Wrote metrics to " + file.getAbsolutePath());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write metrics: " + e.getMessage());
+        }
+    }
+
+    private static void header(StringBuilder buf, String name, String type) {
+        var help = HELP.get(name);
+        if (help != null)
+            buf.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        buf.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder buf, String name, String labels, String value) {
+        buf.append(name);
+        if (!labels.isEmpty())
+            buf.append('{').append(labels).append('}');
+        buf.append(' ').append(value).append('\n');
+    }
+
+    private static String number(double value) {
+        return Double.toString(value);
+    }
+
+    private static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS.length);
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private void observe(double value) {
+            for (int x = 0; x < BUCKETS.length; x++) {
+                if (value <= BUCKETS[x]) {
+                    this.buckets.incrementAndGet(x);
+                    break;
+                }
+            }
+            this.count.increment();
+            this.sum.add(value);
+        }
+    }
+}
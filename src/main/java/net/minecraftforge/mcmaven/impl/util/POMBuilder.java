@@ -5,25 +5,21 @@
 package net.minecraftforge.mcmaven.impl.util;
 
 import org.jetbrains.annotations.Nullable;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import java.io.ByteArrayOutputStream;
+
+import java.io.InputStream;
 import java.util.LinkedHashSet;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Consumer;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+
 public final class POMBuilder {
     public static final String GRADLE_MAGIC_COMMENT = " do_not_remove: published-with-gradle-metadata ";
+    private static final XMLInputFactory XML_INPUT = xmlInput();
     private final String group, name, version;
     private final Dependencies dependencies = new Dependencies();
     private @Nullable String description;
@@ -58,73 +54,108 @@ public final class POMBuilder {
      * Builds the POM file.
      *
      * @return The POM file as a string
-     * @throws ParserConfigurationException If something goes horribly wrong
-     * @throws TransformerException         If the POM file cannot be transformed
      */
-    public String build() throws ParserConfigurationException, TransformerException {
-        var docFactory = DocumentBuilderFactory.newInstance();
-        var docBuilder = docFactory.newDocumentBuilder();
-        var doc = docBuilder.newDocument();
+    public String build() {
+        // Written directly instead of through a DOM, formatted the same as the transformer we used to write them with
+        var xml = new XmlWriter("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>" + System.lineSeparator());
 
-        var project = doc.createElement("project");
-        project.setAttribute("xsi:schemaLocation", "http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd");
-        project.setAttribute("xmlns", "http://maven.apache.org/POM/4.0.0");
-        project.setAttribute("xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance");
-        doc.appendChild(project);
+        xml.start("project")
+            .attribute("xmlns", "http://maven.apache.org/POM/4.0.0")
+            .attribute("xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance")
+            .attribute("xsi:schemaLocation", "http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd");
 
         if (this.preferGradleModule)
-            project.appendChild(doc.createComment(GRADLE_MAGIC_COMMENT));
+            xml.comment(GRADLE_MAGIC_COMMENT);
 
-        set(doc, project, "modelVersion", "4.0.0");
-        set(doc, project, "groupId", this.group);
-        set(doc, project, "artifactId", this.name);
-        set(doc, project, "version", this.version);
-        set(doc, project, "name", this.name);
+        xml.element("modelVersion", "4.0.0");
+        xml.element("groupId", this.group);
+        xml.element("artifactId", this.name);
+        xml.element("version", this.version);
+        xml.element("name", this.name);
         if (this.description != null) {
-            set(doc, project, "description", this.description);
+            xml.element("description", this.description);
         }
 
         if (!this.dependencies.dependencies.isEmpty()) {
-            var dependencies = doc.createElement("dependencies");
+            xml.start("dependencies");
             for (var dependency : this.dependencies.dependencies) {
-                var dep = doc.createElement("dependency");
-                set(doc, dep, "groupId", dependency.artifact.getGroup());
-                set(doc, dep, "artifactId", dependency.artifact.getName());
-                set(doc, dep, "version", dependency.artifact.getVersion());
+                xml.start("dependency");
+                xml.element("groupId", dependency.artifact.getGroup());
+                xml.element("artifactId", dependency.artifact.getName());
+                xml.element("version", dependency.artifact.getVersion());
 
                 var classifier = dependency.artifact.getClassifier();
                 var extension = dependency.artifact.getExtension();
                 if (classifier != null)
-                    set(doc, dep, "classifier", classifier);
+                    xml.element("classifier", classifier);
 
                 if (extension != null && !"jar".equals(extension))
-                    set(doc, dep, "type", extension);
+                    xml.element("type", extension);
 
                 if (dependency.scope != null)
-                    set(doc, dep, "scope", dependency.scope.toString());
+                    xml.element("scope", dependency.scope.toString());
 
-                dependencies.appendChild(dep);
+                xml.end();
             }
-            project.appendChild(dependencies);
+            xml.end();
         }
 
-        doc.normalizeDocument();
-
-        var transformerFactory = TransformerFactory.newInstance();
-        var transformer = transformerFactory.newTransformer();
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes"); //Make it pretty
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+        return xml.end().finish();
+    }
 
-        var output = new ByteArrayOutputStream();
-        transformer.transform(new DOMSource(doc), new StreamResult(output));
+    /**
+     * Rewrites a POM in one pass without the {@link #GRADLE_MAGIC_COMMENT}, indenting it the same way it was written.
+     *
+     * @param pom The POM to read
+     * @return The POM without the comment, or {@code null} if it didn't have one
+     */
+    public static @Nullable String removeGradleMarker(InputStream pom) throws XMLStreamException {
+        // The transformer we used to do this with didn't put the root element on a new line, keep that so existing files don't change
+        var writer = new XmlWriter("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        var modified = false;
+        var reader = XML_INPUT.createXMLStreamReader(pom);
+        int depth = 0;
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT -> {
+                    writer.start(reader.getLocalName());
+                    for (int x = 0; x < reader.getAttributeCount(); x++) {
+                        var prefix = reader.getAttributePrefix(x);
+                        var name = reader.getAttributeLocalName(x);
+                        writer.attribute(prefix == null || prefix.isEmpty() ? name : prefix + ':' + name, reader.getAttributeValue(x));
+                    }
+                    depth++;
+                }
+                case XMLStreamConstants.END_ELEMENT -> {
+                    writer.end();
+                    depth--;
+                }
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> {
+                    // Formatting whitespace, we indent it ourselves
+                    if (!reader.isWhiteSpace())
+                        writer.text(reader.getText());
+                }
+                case XMLStreamConstants.COMMENT -> {
+                    if (depth == 1 && GRADLE_MAGIC_COMMENT.equals(reader.getText()))
+                        modified = true;
+                    else
+                        writer.comment(reader.getText());
+                }
+                default -> { }
+            }
+        }
+        reader.close();
 
-        return output.toString();
+        return modified ? writer.finish() : null;
     }
 
-    private static void set(Document doc, Element parent, String name, String value) {
-        var description = doc.createElement(name);
-        description.appendChild(doc.createTextNode(value));
-        parent.appendChild(description);
+    private static XMLInputFactory xmlInput() {
+        var ret = XMLInputFactory.newFactory();
+        // Keep the xmlns declarations as plain attributes, in the order they were written
+        ret.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        ret.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        ret.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return ret;
     }
 
     public static final class Dependencies {
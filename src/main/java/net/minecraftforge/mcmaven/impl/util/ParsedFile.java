@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.util;
+
+import java.io.File;
+import java.util.function.Function;
+
+import net.minecraftforge.util.hash.HashFunction;
+
+/**
+ * Memoizes the parsed form of a file, so things like the version json can be asked for from many places without
+ * re-reading megabytes of json each time. The file is only hashed when its size or last modified time changes, and
+ * the cached value is only reused if the sha1 still matches what was parsed, so a task re-downloading the file is
+ * picked up.
+ * <p>
+ * Every caller gets the same instance, so the parsed value must be treated as read only.
+ *
+ * @param <T> The parsed type
+ */
+public final class ParsedFile<T> {
+    private final Function<File, T> parser;
+    private File file;
+    private long size;
+    private long modified;
+    private String hash;
+    private T value;
+
+    public ParsedFile(Function<File, T> parser) {
+        this.parser = parser;
+    }
+
+    /** @return The parsed file, shared with every other caller so it must not be modified */
+    public synchronized T get(File file) {
+        file = file.getAbsoluteFile();
+        var size = file.length();
+        var modified = file.lastModified();
+        if (this.value != null && file.equals(this.file) && size == this.size && modified == this.modified)
+            return this.value;
+
+        var hash = Util.hash(HashFunction.sha1(), file);
+        if (this.value == null || !file.equals(this.file) || !hash.equals(this.hash)) {
+            this.value = this.parser.apply(file);
+            this.file = file;
+            this.hash = hash;
+        }
+        this.size = size;
+        this.modified = modified;
+        return this.value;
+    }
+}
@@ -9,6 +9,7 @@ import net.minecraftforge.util.file.FileUtils;
 import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -23,6 +24,8 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -34,18 +37,74 @@ import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
+import org.jetbrains.annotations.Nullable;
+
 // TODO [MCMavenizer][JavaVersion] Move to Java Version? It would be useful for ForgeGradle 7.
 /** Utility class for running processes. */
 public final class ProcessUtils {
-    /** Represents the result of a process execution. */
+    // javac doesn't have its heap set, so assume it needs a reasonable amount for Minecraft sized source sets
+    private static final long JAVAC_MEMORY = 2L << 30;
+
+    // How many lines of output are kept in memory for error messages, everything else is only in the log file
+    static final int TAIL_LINES = 200;
+    static final String LOG_SEPARATOR = "====================================";
+
+    /**
+     * Represents the result of a process execution.
+     * <p>
+     * Only the last lines of output are kept in memory. If the process had a log file, the full output is read back
+     * from it the first time {@link #lines()} is called.
+     */
     public static class Result {
-        public final List<String> lines;
         public final int exitCode;
+        private final List<String> tail;
+        private final @Nullable File log;
+        private @Nullable List<String> lines;
 
-        private Result(List<String> lines, int exitCode) {
-            this.lines = Collections.unmodifiableList(lines);
+        Result(Tail tail, @Nullable File log, int exitCode) {
+            this.tail = tail.lines();
+            this.log = log;
             this.exitCode = exitCode;
         }
+
+        /** @return The last lines the process printed */
+        public List<String> tail() {
+            return this.tail;
+        }
+
+        /** @return Every line the process printed, or the {@linkplain #tail() tail} if it had no log file */
+        public synchronized List<String> lines() {
+            if (this.lines == null)
+                this.lines = this.log == null ? this.tail : readLog(this.log);
+            return this.lines;
+        }
+
+        static List<String> readLog(File log) {
+            try {
+                var all = Files.readAllLines(log.toPath(), StandardCharsets.UTF_8);
+                // The process output starts after the header we write
+                int start = all.indexOf(LOG_SEPARATOR);
+                return Collections.unmodifiableList(all.subList(start + 1, all.size()));
+            } catch (IOException e) {
+                return sneak(e);
+            }
+        }
+    }
+
+    /** Keeps the last few lines of output, so a noisy process doesn't fill the heap. */
+    static final class Tail implements Consumer<String> {
+        private final ArrayDeque<String> lines = new ArrayDeque<>(TAIL_LINES);
+
+        @Override
+        public synchronized void accept(String line) {
+            if (this.lines.size() == TAIL_LINES)
+                this.lines.removeFirst();
+            this.lines.addLast(line);
+        }
+
+        synchronized List<String> lines() {
+            return List.copyOf(this.lines);
+        }
     }
 
     private static String getStackTrace(Throwable t) {
@@ -79,9 +138,9 @@ public final class ProcessUtils {
      * @return The result of the process
      */
     public static Result runCommand(File workDir, String... args) {
-        var lines = new ArrayList<String>();
-        int exitCode = runCommand(workDir, lines::add, args);
-        return new Result(lines, exitCode);
+        var tail = new Tail();
+        int exitCode = runCommand(workDir, tail, args);
+        return new Result(tail, null, exitCode);
     }
 
     /**
@@ -128,6 +187,20 @@ public final class ProcessUtils {
      * @return The exit code of the process
      */
     public static int runCommand(File workDir, Consumer<String> lines, ToIntFunction<String> logHandler, String... args) {
+        var event = new JfrEvents.ChildProcess();
+        event.command = new File(args[0]).getName();
+        event.begin();
+        var start = System.nanoTime();
+        try (var span = Trace.begin("process", event.command)) {
+            return runCommand(span, event, workDir, lines, logHandler, args);
+        } finally {
+            Metrics.count(Metrics.PROCESSES, 1, "command", event.command);
+            Metrics.time(Metrics.PROCESS_WALL, System.nanoTime() - start, "command", event.command);
+            event.commit();
+        }
+    }
+
+    private static int runCommand(Trace.Span span, JfrEvents.ChildProcess event, File workDir, Consumer<String> lines, ToIntFunction<String> logHandler, String... args) {
         LOGGER.debug("Running Command: " + String.join(" ", args));
 
         Process process;
@@ -139,6 +212,8 @@ public final class ProcessUtils {
                 builder.directory(workDir);
 
             process = builder.start();
+            span.arg("pid", process.pid());
+            event.pid = process.pid();
         } catch (IOException e) {
             getStackTrace(e, lines);
             return -1;
@@ -146,8 +221,14 @@ public final class ProcessUtils {
 
         var is = new BufferedReader(new InputStreamReader(process.getInputStream()));
 
+        // The CPU time can't be read once the process has been reaped, so sample it every time around, keeping the
+        // last value we saw before it exited
+        var handle = process.toHandle();
+        long cpu = 0;
         int forcedExit = 0;
         while (process.isAlive()) {
+            cpu = handle.info().totalCpuDuration().map(Duration::toNanos).orElse(cpu);
+
             try {
                 while (is.ready()) {
                     String line = is.readLine();
@@ -171,7 +252,11 @@ public final class ProcessUtils {
             }
         }
 
+        Metrics.time(Metrics.PROCESS_CPU, cpu, "command", event.command);
+
         var exitValue = forcedExit == 0 ? process.exitValue() : forcedExit;
+        span.arg("exitCode", exitValue);
+        event.exitCode = exitValue;
         if (exitValue != 0)
             lines.accept("Process returned non-zero exit value: " + exitValue);
         return exitValue;
@@ -225,10 +310,13 @@ public final class ProcessUtils {
      */
     public static Result runJar(File javaHome, File workDir, File logFile, File tool, List<String> jvm, List<String> run, ToIntFunction<String> logHandler) {
         FileUtils.ensureParent(logFile);
-        try (var log = new PrintWriter(new FileWriter(logFile), true)) {
+        try (var _ = Trace.begin("tool", tool.getName());
+             var _ = MemoryBudget.acquire(tool.getName(), MemoryBudget.heapOf(jvm, MemoryBudget.DEFAULT_TOOL));
+             var log = new PrintWriter(new BufferedWriter(new FileWriter(logFile, StandardCharsets.UTF_8)))) {
             String classpath = tool.getAbsolutePath();
             // Some old jvms require manually adding the classes zip, so lets add it if it exists
             File classes = new File(javaHome, "libs/classes.zip");
+            boolean pooled = WorkerPool.isEnabled() && jvm.isEmpty() && !classes.exists();
             if (classes.exists())
                 classpath += File.pathSeparator + classes.getAbsolutePath();
 
@@ -244,26 +332,40 @@ public final class ProcessUtils {
             lines.accept("Classpath: " + classpath);
             lines.accept("Main:      " + main);
             lines.accept("Work Dir:  " + workDir.getAbsolutePath());
-            log.println("====================================");
+            log.println(LOG_SEPARATOR);
+
+            // Pooled workers already only start once, fresh JVMs get a class data sharing archive
+            var cds = pooled ? null : ClassDataSharing.begin(javaHome, classpath, main);
 
             var args = new ArrayList<String>();
             args.add(launcher.getAbsolutePath());
             args.addAll(jvm);
+            if (cds != null)
+                args.addAll(cds.args());
             args.add("-classpath");
             args.add(classpath);
             args.add(main);
             args.addAll(run);
 
-            var consoleLog = new ArrayList<String>();
+            var tail = new Tail();
             lines = line -> {
-                consoleLog.add(line);
+                tail.accept(line);
                 log.println(line);
             };
 
-            int ret = runCommand(workDir, lines, logHandler, args.toArray(String[]::new));
+            // Tools that need their own JVM settings get a fresh JVM, everything else can share a worker
+            int ret = -1;
+            try {
+                ret = pooled
+                    ? WorkerPool.run(launcher, tool, main, workDir, run, lines, logHandler)
+                    : runCommand(workDir, lines, logHandler, args.toArray(String[]::new));
+            } finally {
+                if (cds != null)
+                    cds.finish(ret == 0);
+            }
 
             log.flush();
-            return new Result(consoleLog, ret);
+            return new Result(tail, logFile, ret);
         } catch (IOException e) {
             return sneak(e);
         }
@@ -348,7 +450,7 @@ public final class ProcessUtils {
         if (process.exitCode != 0) {
             LOGGER.error("Javac failed to execute! Exit code " + process.exitCode);
             LOGGER.error("--- BEGIN JAVAC LOG ---");
-            process.lines.forEach(LOGGER::error);
+            process.lines().forEach(LOGGER::error);
             LOGGER.error("--- END JAVAC LOG ---");
             throw new RuntimeException("Javac failed to execute! Exit code " + process.exitCode + " Source Jar: " + sourcesJar.getAbsolutePath());
         }
@@ -382,7 +484,8 @@ public final class ProcessUtils {
 
     private static Result runJavac(File javaHome, File workDir, File logFile, List<String> args, File sourceArchive) {
         FileUtils.ensureParent(logFile);
-        try (var log = new PrintWriter(new FileWriter(logFile), true)) {
+        try (var _ = MemoryBudget.acquire("javac", JAVAC_MEMORY);
+             var log = new PrintWriter(new BufferedWriter(new FileWriter(logFile, StandardCharsets.UTF_8)))) {
             var argsAll = Util.make(new StringBuilder(), s -> {
                 var it = args.iterator();
                 while (it.hasNext()) {
@@ -412,22 +515,22 @@ public final class ProcessUtils {
             lines.accept("Source Archive: " + sourceArchive.getAbsolutePath());
             log.println("Arguments:");
             log.println(argsAll);
-            lines.accept("====================================");
+            lines.accept(LOG_SEPARATOR);
 
             var command = new ArrayList<String>();
             command.add(launcher.getAbsolutePath().replace('\\', '/'));
             command.add(argsString);
 
-            var consoleLog = new ArrayList<String>();
+            var tail = new Tail();
             lines = line -> {
-                consoleLog.add(line);
+                tail.accept(line);
                 log.println(line);
             };
 
             int ret = runCommand(workDir, lines, command.toArray(String[]::new));
 
             log.flush();
-            return new Result(consoleLog, ret);
+            return new Result(tail, logFile, ret);
         } catch (IOException e) {
             return sneak(e);
         }
@@ -117,11 +117,16 @@ public class StupidHacks {
         return 0;
     }
 
-    public static ProcessUtils.Result runDecompiler(File jdk, File log, File tool, List<String> defaultJvm, List<String> run) {
+    public static ProcessUtils.Result runDecompiler(File jdk, int javaVersion, File log, File tool, @Nullable File input, List<String> defaultJvm, List<String> run) {
         ToIntFunction<String> logHandler = StupidHacks::parseDecompileLog;
-        var jvm = Mavenizer.fillDecompileJvmArgs(defaultJvm, true, true);
+        var gcLog = new File(log.getParentFile(), "gc.log");
+        var estimate = input == null ? null : DecompileHeap.estimate(tool, input);
+        var jvm = Mavenizer.fillDecompileJvmArgs(defaultJvm, true, estimate == null ? null : estimate.args(javaVersion, gcLog));
 
+        gcLog.delete();
         var ret = ProcessUtils.runJar(jdk, log.getParentFile(), log, tool, jvm, run, logHandler);
+        if (estimate != null)
+            DecompileHeap.record(estimate, gcLog, ret.exitCode == OUT_OF_MEMORY);
         if (ret.exitCode == NOT_ENOUGH_MEMORY) {
             LOGGER.error("Failed to create JVM with Not Enough Memory issue, Modern minecraft requires atleast 4GB to decompile. Run it on a system with more ram.");
         } else if (ret.exitCode == INVALID_INITAL_HEAP) {
@@ -129,11 +134,22 @@ public class StupidHacks {
             LOGGER.error("This is typically caused by you having a environement variable setting the global memory options, remove or set those variables to values higher then 4GB.");
         }
         if (ret.exitCode == OUT_OF_MEMORY || ret.exitCode == INVALID_INITAL_HEAP) {
-            var newJvm = Mavenizer.fillDecompileJvmArgs(defaultJvm, false, false);
+            List<String> newJvm;
+            if (ret.exitCode == OUT_OF_MEMORY && estimate != null && estimate.canGrow()) {
+                estimate = estimate.grow();
+                newJvm = Mavenizer.fillDecompileJvmArgs(defaultJvm, true, estimate.args(javaVersion, gcLog));
+            } else {
+                estimate = null;
+                newJvm = Mavenizer.fillDecompileJvmArgs(defaultJvm, false, null);
+            }
+
             if (!newJvm.equals(jvm)) {
                 LOGGER.error("First decompile failed with OutOfMemory using JVM Args: " + jvm);
                 LOGGER.error("Attempting again with: " + newJvm);
+                gcLog.delete();
                 ret = ProcessUtils.runJar(jdk, log.getParentFile(), log, tool, newJvm, run, logHandler);
+                if (estimate != null)
+                    DecompileHeap.record(estimate, gcLog, ret.exitCode == OUT_OF_MEMORY);
                 if (ret.exitCode == OUT_OF_MEMORY)
                     LOGGER.error("Ran out of memory again, you can specify more manually using the --decompile-memory Mavenizer argument");
             }
@@ -18,6 +18,11 @@ import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import org.jetbrains.annotations.Nullable;
+
+import net.minecraftforge.mcmaven.impl.Mavenizer;
+import net.minecraftforge.mcmaven.impl.cache.RemoteCache;
+
 /** Represents a task that can be executed. Tasks in this tool <strong>will always</strong> provide a file. */
 public interface Task {
     /**
@@ -52,6 +57,18 @@ public interface Task {
         return () -> this.execute().getAbsolutePath();
     }
 
+    /** @return The name of the task running on this thread, if any */
+    static @Nullable String current() {
+        var current = Simple.CURRENT.get();
+        return current == null ? null : current.name;
+    }
+
+    /** @return The outputs of the dependencies of the task running on this thread */
+    static List<File> currentInputs() {
+        var current = Simple.CURRENT.get();
+        return current == null || current.inputs == null ? List.of() : current.inputs;
+    }
+
     static Task named(String name, Callable<File> supplier) {
         return named(name, List.of(), supplier);
     }
@@ -102,10 +119,13 @@ public interface Task {
     }
 
     final class Simple implements Task {
+        private static final ThreadLocal<Simple> CURRENT = new ThreadLocal<>();
+
         private final String name;
         private final SequencedCollection<? extends Supplier<? extends Task>> deps;
         private final Callable<File> supplier;
         private File file;
+        private @Nullable List<File> inputs = null;
         private RuntimeException failed = null;
 
         private Simple(String name, SequencedCollection<? extends Supplier<? extends Task>> deps, Callable<File> supplier) {
@@ -114,8 +134,10 @@ public interface Task {
             this.supplier = supplier;
         }
 
+        // Synchronized so tasks shared between threads, such as downloads during a prefetch, only run once.
+        // The task graph is acyclic, so locking parents before their dependencies can't deadlock.
         @Override
-        public File execute() {
+        public synchronized File execute() {
             // Don't try to execute again if we've already failed
             if (failed != null)
                 throw failed;
@@ -123,12 +145,13 @@ public interface Task {
             // immediately stop if result is already calculated
             if (this.file == null) {
                 // run all task dependencies
+                var inputs = new ArrayList<File>(deps.size());
                 for (var dep : deps) {
                     var task = dep.get();
                     if (task == null) continue; // Some automated task generators may have a null parent, which is fine.
 
                     try {
-                        task.execute();
+                        inputs.add(task.execute());
                     } catch (DependencyException e) {
                         e.deps.addFirst(this);
                         throw e; // rethrow
@@ -141,8 +164,27 @@ public interface Task {
                 LOGGER.info(name);
                 var indent = LOGGER.push();
                 var start = System.nanoTime();
+                var locks = FileLocks.mark();
+                var remote = RemoteCache.mark();
+                var written = Mavenizer.markWritten();
+                var success = false;
+                var parent = CURRENT.get();
+                this.inputs = inputs;
+                CURRENT.set(this);
+                var span = Trace.begin("task", this.name);
+                var event = new JfrEvents.TaskExecution();
+                event.begin();
                 try {
                     this.file = supplier.call();
+                    success = true;
+
+                    if (span.isRecording()) {
+                        long read = 0;
+                        for (var input : inputs)
+                            read += input != null && input.isFile() ? input.length() : 0;
+                        span.arg("bytesRead", read);
+                        span.arg("bytesWritten", this.file.isFile() ? this.file.length() : 0);
+                    }
 
                     var time = Duration.ofNanos(System.nanoTime() - start);
                     LOGGER.debug(String.format("-> took %d:%02d.%03d", time.toMinutesPart(), time.toSecondsPart(), time.toMillisPart()));
@@ -151,6 +193,23 @@ public interface Task {
                     failed = new RuntimeException("Failed to execute task `%s`".formatted(this.name()), e);
                     throw failed;
                 } finally {
+                    // Upload while we still hold the locks, so nobody changes the outputs under us
+                    RemoteCache.complete(remote, success);
+                    Mavenizer.dedupeWritten(written, success);
+                    FileLocks.release(locks);
+                    CURRENT.set(parent);
+                    span.close();
+                    Metrics.observe(Metrics.TASK_DURATION, System.nanoTime() - start, "type", Metrics.taskType(this.name));
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.name = this.name;
+                        event.success = success;
+                        if (this.file != null) {
+                            event.output = this.file.getAbsolutePath();
+                            event.outputBytes = this.file.length();
+                        }
+                        event.commit();
+                    }
                     LOGGER.pop(indent);
                 }
             }
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.google.gson.stream.JsonWriter;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+/**
+ * Records when tasks, downloads, and child processes start and finish, and writes them in the Chrome trace event
+ * format. The result can be opened in {@code chrome://tracing} or <a href="https://ui.perfetto.dev">Perfetto</a> to
+ * find the critical path and idle time of a run.
+ * <p>
+ * Tracing is off unless {@link #enable()} is called, in which case {@link #begin(String, String)} returns a shared
+ * span that does nothing, so call sites don't need to check.
+ */
+public final class Trace {
+    private static volatile @Nullable Trace active = null;
+    private static final ThreadLocal<Deque<Span>> OPEN = ThreadLocal.withInitial(ArrayDeque::new);
+    private static final Span NOOP = new Span(null, "", "", null);
+
+    private final long origin = System.nanoTime();
+    private final ConcurrentLinkedQueue<Span> finished = new ConcurrentLinkedQueue<>();
+    private final Map<Long, String> threads = new TreeMap<>();
+
+    private Trace() { }
+
+    public static void enable() {
+        active = new Trace();
+    }
+
+    public static boolean isEnabled() {
+        return active != null;
+    }
+
+    /**
+     * Starts a span on the current thread. It must be closed on the same thread.
+     *
+     * @param category The kind of work, such as {@code task} or {@code download}
+     * @param name     What is being done
+     */
+    public static Span begin(String category, String name) {
+        var trace = active;
+        if (trace == null)
+            return NOOP;
+
+        var thread = Thread.currentThread();
+        synchronized (trace.threads) {
+            trace.threads.putIfAbsent(thread.threadId(), thread.getName());
+        }
+
+        var span = new Span(trace, category, name, thread);
+        OPEN.get().push(span);
+        return span;
+    }
+
+    /** Adds an argument to the innermost open span on this thread, if there is one. */
+    public static void annotate(String key, Object value) {
+        if (active == null)
+            return;
+
+        var span = OPEN.get().peek();
+        if (span != null)
+            span.arg(key, value);
+    }
+
+    /**
+     * Writes every finished span to the given file, in the Chrome trace event format.
+     * Does nothing if tracing is not enabled.
+     */
+    public static void write(File file) {
+        var trace = active;
+        if (trace == null)
+            return;
+
+        try {
+            Util.publish(file, tmp -> {
+                try (var writer = new JsonWriter(new OutputStreamWriter(Files.newOutputStream(tmp.toPath()), StandardCharsets.UTF_8))) {
+                    trace.write(writer);
+                }
+            });
+            LOGGER.info("Wrote trace to " + file.getAbsolutePath());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write trace: " + e.getMessage());
+        }
+    }
+
+    private void write(JsonWriter writer) throws IOException {
+        long pid = ProcessHandle.current().pid();
+        writer.beginObject();
+        writer.name("displayTimeUnit").value("ms");
+        writer.name("traceEvents").beginArray();
+
+        synchronized (this.threads) {
+            for (var entry : this.threads.entrySet()) {
+                writer.beginObject();
+                writer.name("name").value("thread_name");
+                writer.name("ph").value("M");
+                writer.name("pid").value(pid);
+                writer.name("tid").value(entry.getKey());
+                writer.name("args").beginObject().name("name").value(entry.getValue()).endObject();
+                writer.endObject();
+            }
+        }
+
+        for (var span : this.finished) {
+            writer.beginObject();
+            writer.name("name").value(span.name);
+            writer.name("cat").value(span.category);
+            writer.name("ph").value("X");
+            writer.name("ts").value((span.start - this.origin) / 1000);
+            writer.name("dur").value(Math.max(1, (span.end - span.start) / 1000));
+            writer.name("pid").value(pid);
+            writer.name("tid").value(span.thread);
+            if (span.args != null) {
+                writer.name("args").beginObject();
+                for (var arg : span.args.entrySet()) {
+                    writer.name(arg.getKey());
+                    if (arg.getValue() instanceof Number number)
+                        writer.value(number);
+                    else if (arg.getValue() instanceof Boolean bool)
+                        writer.value(bool);
+                    else
+                        writer.value(String.valueOf(arg.getValue()));
+                }
+                writer.endObject();
+            }
+            writer.endObject();
+        }
+
+        writer.endArray();
+        writer.endObject();
+    }
+
+    /** A unit of traced work, closing it records the end time. */
+    public static final class Span implements AutoCloseable {
+        private final @Nullable Trace trace;
+        private final String category;
+        private final String name;
+        private final long thread;
+        private final long start;
+        private long end;
+        private @Nullable Map<String, Object> args;
+
+        private Span(@Nullable Trace trace, String category, String name, @Nullable Thread thread) {
+            this.trace = trace;
+            this.category = category;
+            this.name = name;
+            this.thread = thread == null ? 0 : thread.threadId();
+            this.start = trace == null ? 0 : System.nanoTime();
+        }
+
+        /** Adds an argument that is shown when the span is selected in the viewer. */
+        public Span arg(String key, Object value) {
+            if (this.trace != null) {
+                if (this.args == null)
+                    this.args = new LinkedHashMap<>();
+                this.args.put(key, value);
+            }
+            return this;
+        }
+
+        /** @return If this span is being recorded, useful to skip computing expensive arguments */
+        public boolean isRecording() {
+            return this.trace != null;
+        }
+
+        @Override
+        public void close() {
+            if (this.trace == null)
+                return;
+
+            this.end = System.nanoTime();
+            OPEN.get().remove(this);
+            this.trace.finished.add(this);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.minecraftforge.util.hash.HashFunction;
+import net.minecraftforge.util.hash.HashStore;
+
+/**
+ * A {@link HashStore} that also remembers what each input was, as given to it.
+ * <p>
+ * The hash store only keeps hashes, and its dumps are plain text that can't be split back into keys and values when
+ * the keys are paths or artifact coordinates. Keeping the keys here lets {@code --explain} say exactly which input
+ * changed, and what it pointed to.
+ * <p>
+ * Stores made for a file also replay their inputs into a fresh store when needed. That way the {@code .cache} sidecar
+ * is written to a temporary file and moved in place, so other processes never read half of one, and a sidecar that
+ * another process rewrote while we waited for its lock is read again before trusting it.
+ */
+public final class TrackedHashStore {
+    private final @Nullable File target;
+    private final @Nullable Function<File, HashStore> factory;
+    private final List<Consumer<HashStore>> added = new ArrayList<>();
+    private final Map<String, String> inputs = new LinkedHashMap<>();
+    private final List<Input> hashed = new ArrayList<>();
+    private HashStore store;
+    private long sidecarSize;
+    private long sidecarModified;
+
+    /** A store that is saved in place, for anything that isn't a single file */
+    public TrackedHashStore(HashStore store) {
+        this.target = null;
+        this.factory = null;
+        this.store = store;
+    }
+
+    /**
+     * @param target  The file the store is for
+     * @param factory Creates the hash store for a file, the temporary file it is saved through included
+     */
+    public TrackedHashStore(File target, Function<File, HashStore> factory) {
+        this.target = target.getAbsoluteFile();
+        this.factory = factory;
+        this.store = factory.apply(this.target);
+        var sidecar = sidecar(this.target);
+        this.sidecarSize = sidecar.length();
+        this.sidecarModified = sidecar.lastModified();
+    }
+
+    private static File sidecar(File target) {
+        return new File(target.getPath() + ".cache");
+    }
+
+    private TrackedHashStore apply(Consumer<HashStore> action) {
+        action.accept(this.store);
+        if (this.factory != null)
+            this.added.add(action);
+        return this;
+    }
+
+    public TrackedHashStore add(String key, @Nullable File file) {
+        this.apply(store -> store.add(key, file));
+        this.inputs.put(key, file == null ? "null" : file.getAbsolutePath());
+        this.hashed.add(new Input(key, file, null));
+        return this;
+    }
+
+    public TrackedHashStore add(String key, String data) {
+        this.apply(store -> store.add(key, data));
+        this.inputs.put(key, data);
+        this.hashed.add(new Input(key, null, HashFunction.sha1().hash(data)));
+        return this;
+    }
+
+    public TrackedHashStore add(String key, byte[] data) {
+        this.apply(store -> store.add(key, data));
+        this.inputs.put(key, data.length + " bytes");
+        this.hashed.add(new Input(key, null, HashFunction.sha1().hash(data)));
+        return this;
+    }
+
+    public TrackedHashStore add(File file) {
+        this.apply(store -> store.add(file));
+        this.inputs.put(file.getAbsolutePath(), file.getAbsolutePath());
+        this.hashed.add(new Input(null, file, null));
+        return this;
+    }
+
+    public TrackedHashStore add(File... files) {
+        for (var file : files)
+            this.add(file);
+        return this;
+    }
+
+    public TrackedHashStore add(Collection<File> files) {
+        for (var file : files)
+            this.add(file);
+        return this;
+    }
+
+    public TrackedHashStore addKnown(String key, String hash) {
+        this.apply(store -> store.addKnown(key, hash));
+        this.inputs.put(key, hash);
+        this.hashed.add(new Input(key, null, hash));
+        return this;
+    }
+
+    public TrackedHashStore timestamps(boolean timestamps) {
+        return this.apply(store -> store.timestamps(timestamps));
+    }
+
+    public TrackedHashStore clear() {
+        this.store.clear();
+        this.added.clear();
+        this.inputs.clear();
+        this.hashed.clear();
+        return this;
+    }
+
+    public boolean isSame() {
+        return this.store.isSame();
+    }
+
+    /**
+     * Reads the sidecar again if it changed since it was last read, such as by another process that held the lock
+     * we were waiting on.
+     */
+    public void reload() {
+        if (this.target == null || this.factory == null)
+            return;
+
+        var sidecar = sidecar(this.target);
+        var size = sidecar.length();
+        var modified = sidecar.lastModified();
+        if (size == this.sidecarSize && modified == this.sidecarModified)
+            return;
+
+        var store = this.factory.apply(this.target);
+        for (var action : this.added)
+            action.accept(store);
+        this.store = store;
+        this.sidecarSize = size;
+        this.sidecarModified = modified;
+    }
+
+    public void save() {
+        if (this.target == null || this.factory == null) {
+            this.store.save();
+            return;
+        }
+
+        // The hash store writes its sidecar next to the file it is for, so have a copy write it next to a stand in
+        var target = this.target;
+        var factory = this.factory;
+        var sidecar = sidecar(target);
+        try {
+            Util.publish(sidecar, tmp -> {
+                var standIn = new File(tmp.getPath() + ".for");
+                var written = sidecar(standIn);
+                try {
+                    var store = factory.apply(standIn);
+                    for (var action : this.added)
+                        action.accept(store);
+                    store.save();
+                    Files.move(written.toPath(), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    written.delete();
+                }
+            });
+        } catch (IOException e) {
+            Util.sneak(e);
+        }
+        this.sidecarSize = sidecar.length();
+        this.sidecarModified = sidecar.lastModified();
+    }
+
+    public String dump() {
+        return this.store.dump();
+    }
+
+    public String dumpOld() {
+        return this.store.dumpOld();
+    }
+
+    /** @return The keys added so far, mapped to the file, string or hash they were given */
+    public Map<String, String> inputs() {
+        return Collections.unmodifiableMap(this.inputs);
+    }
+
+    /**
+     * Hashes every input again, without the paths the hash store uses as keys for files, so the result is the same
+     * on any machine with the same inputs.
+     *
+     * @param name Names the files that were added without a key
+     * @return The name of each input, mapped to its hash
+     */
+    public Map<String, String> hashes(Function<File, String> name) {
+        var ret = new LinkedHashMap<String, String>();
+        for (var input : this.hashed) {
+            var key = input.key() != null ? input.key() : name.apply(input.file());
+            ret.put(key, input.hash() != null ? input.hash() : hash(input.file()));
+        }
+        return ret;
+    }
+
+    private static String hash(@Nullable File file) {
+        if (file == null)
+            return "null";
+        if (!file.exists())
+            return "missing";
+        if (!file.isDirectory())
+            return Util.hash(HashFunction.sha1(), file);
+
+        // Folders are the relative name and hash of each file in them
+        var root = file.toPath();
+        var ret = new StringBuilder();
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (var path : walk.filter(Files::isRegularFile).sorted().toList()) {
+                var relative = root.relativize(path).toString().replace('\\', '/');
+                ret.append(relative).append(' ').append(Util.hash(HashFunction.sha1(), path.toFile())).append('\n');
+            }
+        } catch (IOException e) {
+            return Util.sneak(e);
+        }
+        return HashFunction.sha1().hash(ret.toString());
+    }
+
+    private record Input(@Nullable String key, @Nullable File file, @Nullable String hash) { }
+}
@@ -9,6 +9,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.TimeZone;
@@ -22,6 +24,7 @@ import java.util.zip.ZipEntry;
 
 import net.minecraftforge.mcmaven.impl.Mavenizer;
 import net.minecraftforge.mcmaven.impl.cache.Cache;
+import net.minecraftforge.util.file.FileUtils;
 import net.minecraftforge.util.hash.HashFunction;
 import net.minecraftforge.util.hash.HashStore;
 import net.minecraftforge.util.logging.Logger;
@@ -117,6 +120,8 @@ public class Util {
     public static String hash(HashFunction func, @UnknownNullability File... files) {
         try {
             var existing = Stream.of(files).filter(f -> f != null && f.exists()).toList();
+            for (var file : existing)
+                Metrics.count(Metrics.HASHED_BYTES, file.length());
             return func.hash(existing);
         } catch (IOException e) {
             return sneak(e);
@@ -205,18 +210,43 @@ public class Util {
     }
 
 
-    public static HashStore cache(File file) {
-        return HashStore.fromFile(file)
+    @FunctionalInterface
+    public interface TempWriter {
+        void write(File target) throws IOException;
+    }
+
+    /**
+     * Writes a file to a temporary sibling, and then moves it in place. So that other threads and processes
+     * sharing the cache never see a partially written file.
+     *
+     * @param target The final file
+     * @param writer Writes the contents to the file it is given
+     * @return The target file
+     */
+    public static File publish(File target, TempWriter writer) throws IOException {
+        var tmp = new File(target.getAbsolutePath() + '.' + ProcessHandle.current().pid() + '-' + Thread.currentThread().threadId() + ".tmp");
+        try {
+            FileUtils.ensureParent(target);
+            writer.write(tmp);
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tmp.delete();
+        }
+        return target;
+    }
+
+    public static TrackedHashStore cache(File file) {
+        return new TrackedHashStore(file, target -> HashStore.fromFile(target)
             .invalidate(Mavenizer.ignoreCache())
             //.timestamps()
-            ;
+            );
     }
 
-    public static HashStore cacheDir(File file) {
-        return HashStore.fromDir(file)
+    public static TrackedHashStore cacheDir(File file) {
+        return new TrackedHashStore(HashStore.fromDir(file)
             .invalidate(Mavenizer.ignoreCache())
             //.timestamps()
-            ;
+            );
     }
 
     public static void filter(Logger logger, String header, List<File> files) {
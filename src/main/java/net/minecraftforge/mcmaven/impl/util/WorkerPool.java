@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+import org.jetbrains.annotations.Nullable;
+
+import static net.minecraftforge.mcmaven.impl.Mavenizer.LOGGER;
+
+/**
+ * Keeps tool JVMs alive between calls, so bulk runs that call the same tools hundreds of times only start each once.
+ * <p>
+ * Workers are kept per JDK and tool jar, and run one request at a time. They are shared between working directories,
+ * so arguments that are files relative to the job's working directory are made absolute first. A relative argument
+ * that doesn't exist yet, such as an output, can't be told apart from any other value, so if one looks like a file
+ * the job only uses workers started in its own working directory. A worker is replaced
+ * once it has run the configured number of jobs, if its heap is mostly full after a job, or if the tool exits the JVM.
+ * Only a few idle workers are kept for each tool and in total, and idle ones are closed after a while, so a run that
+ * has moved on to other tools doesn't keep their JVMs around.
+ *
+ * @see net.minecraftforge.mcmaven.worker.WorkerMain
+ */
+public final class WorkerPool {
+    private WorkerPool() { }
+
+    private static final String WORKER_MAIN = "net.minecraftforge.mcmaven.worker.WorkerMain";
+
+    private static final int MAX_IDLE_PER_TOOL = 2;
+    private static final int MAX_IDLE = 8;
+    private static final long IDLE_TIMEOUT = TimeUnit.SECONDS.toNanos(60);
+
+    private static volatile int maxJobs = 0;
+    private static @Nullable String workerClasspath = null;
+    private static final Map<Key, Deque<Worker>> IDLE = new HashMap<>();
+    private static int idleCount = 0;
+
+    private record Key(File launcher, File tool, String main, @Nullable File workDir) {}
+
+    /**
+     * Enables the pool.
+     *
+     * @param jobs How many jobs a worker runs before it is replaced
+     */
+    public static void enable(int jobs) {
+        try {
+            workerClasspath = ProcessUtils.getPathFromResource(WORKER_MAIN.replace('.', '/') + ".class").toAbsolutePath().toString();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Worker pool is not available, could not find the worker: " + e.getMessage());
+            return;
+        }
+
+        maxJobs = Math.max(1, jobs);
+        Runtime.getRuntime().addShutdownHook(new Thread(WorkerPool::shutdown, "Worker Pool Shutdown"));
+
+        var reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "Worker Pool Reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reaper.scheduleWithFixedDelay(WorkerPool::closeExpired, 10, 10, TimeUnit.SECONDS);
+    }
+
+    public static boolean isEnabled() {
+        return maxJobs > 0;
+    }
+
+    /**
+     * Runs a tool's main class in a pooled worker.
+     *
+     * @param launcher   The java executable
+     * @param tool       The tool jar, which is the whole classpath
+     * @param main       The main class
+     * @param workDir    The working directory, relative file arguments are resolved against it
+     * @param args       The program arguments
+     * @param lines      The consumer to collect the output into
+     * @param logHandler Log line handler, return non-zero to fail the job
+     * @return The exit code of the job
+     */
+    public static int run(File launcher, File tool, String main, File workDir, List<String> args, Consumer<String> lines, @Nullable ToIntFunction<String> logHandler) {
+        var resolved = new ArrayList<String>(args.size());
+        var relative = false;
+        for (var arg : args) {
+            var value = resolve(workDir, arg);
+            resolved.add(value);
+            relative |= isRelativeFile(value);
+        }
+        var key = new Key(launcher.getAbsoluteFile(), tool.getAbsoluteFile(), main, relative ? workDir.getAbsoluteFile() : null);
+
+        Worker worker;
+        synchronized (IDLE) {
+            var idle = IDLE.get(key);
+            worker = idle == null ? null : idle.poll();
+            if (worker != null)
+                idleCount--;
+        }
+
+        try {
+            if (worker == null)
+                worker = Worker.start(key, workDir);
+
+            worker.errors = lines;
+            int ret = worker.run(resolved, lines, logHandler);
+            worker.errors = null;
+            if (worker.jobs >= maxJobs || worker.used > worker.max / 4 * 3) {
+                LOGGER.debug("Recycling worker for " + tool.getName() + " after " + worker.jobs + " jobs");
+                worker.close();
+            } else {
+                release(key, worker);
+            }
+            return ret;
+        } catch (IOException e) {
+            if (worker == null) {
+                lines.accept("Failed to start worker: " + e.getMessage());
+                return -1;
+            }
+
+            // Either the tool called System.exit, or the worker crashed. Either way, the JVM's exit code is the result,
+            // and whatever it printed to stderr, such as an unsupported class version, is in the log.
+            var exit = worker.exit();
+            worker.errors = null;
+            if (exit != 0)
+                lines.accept("Process returned non-zero exit value: " + exit);
+            return exit;
+        }
+    }
+
+    /** Makes an argument, or the value of a {@code key=value} argument, absolute if it is a file in the working directory. */
+    private static String resolve(File workDir, String arg) {
+        int idx = arg.indexOf('=') + 1;
+        var path = arg.substring(idx);
+        if (path.isEmpty() || new File(path).isAbsolute())
+            return arg;
+
+        var file = new File(workDir, path);
+        return file.exists() ? arg.substring(0, idx) + file.getAbsolutePath() : arg;
+    }
+
+    /** @return If an argument, or the value of a {@code key=value} argument, looks like a relative file name */
+    private static boolean isRelativeFile(String arg) {
+        var path = arg.substring(arg.indexOf('=') + 1);
+        if (path.isEmpty() || new File(path).isAbsolute() || path.matches("-?[0-9.]+"))
+            return false;
+        return path.indexOf('/') >= 0 || path.indexOf('\\') >= 0 || path.indexOf('.') >= 0;
+    }
+
+    /** Keeps a worker for the next job, unless we already have enough idle ones. */
+    private static void release(Key key, Worker worker) {
+        Worker evicted = null;
+        synchronized (IDLE) {
+            var idle = IDLE.computeIfAbsent(key, _ -> new ArrayDeque<>());
+            if (idle.size() >= MAX_IDLE_PER_TOOL) {
+                evicted = worker;
+            } else {
+                worker.idleSince = System.nanoTime();
+                idle.push(worker);
+                idleCount++;
+                if (idleCount > MAX_IDLE)
+                    evicted = removeOldest();
+            }
+        }
+
+        if (evicted != null)
+            evicted.close();
+    }
+
+    /** @return The worker that has been idle the longest, already removed from the pool */
+    private static @Nullable Worker removeOldest() {
+        Deque<Worker> oldest = null;
+        for (var idle : IDLE.values()) {
+            // Most recently used workers are pushed to the front, so the oldest one is always last
+            if (!idle.isEmpty() && (oldest == null || idle.peekLast().idleSince < oldest.peekLast().idleSince))
+                oldest = idle;
+        }
+
+        if (oldest == null)
+            return null;
+
+        idleCount--;
+        return oldest.pollLast();
+    }
+
+    private static void closeExpired() {
+        var expired = new ArrayList<Worker>();
+        long now = System.nanoTime();
+        synchronized (IDLE) {
+            for (var idle : IDLE.values()) {
+                while (!idle.isEmpty() && now - idle.peekLast().idleSince > IDLE_TIMEOUT) {
+                    expired.add(idle.pollLast());
+                    idleCount--;
+                }
+            }
+        }
+
+        for (var worker : expired)
+            worker.close();
+    }
+
+    private static void shutdown() {
+        var workers = new ArrayList<Worker>();
+        synchronized (IDLE) {
+            for (var idle : IDLE.values())
+                workers.addAll(idle);
+            IDLE.clear();
+            idleCount = 0;
+        }
+        for (var worker : workers)
+            worker.close();
+    }
+
+    private static final class Worker {
+        private final Process process;
+        private final DataOutputStream in;
+        private final DataInputStream out;
+        private final Thread stderr;
+        private int jobs = 0;
+        private long used = 0;
+        private long max = Long.MAX_VALUE;
+        private long idleSince = 0;
+        // The log of the job that is running, for anything the JVM itself prints
+        private volatile @Nullable Consumer<String> errors = null;
+
+        private Worker(Process process) {
+            this.process = process;
+            this.in = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.out = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            this.stderr = new Thread(() -> this.pump(process.getErrorStream()), "Worker stderr");
+            this.stderr.setDaemon(true);
+            this.stderr.start();
+        }
+
+        private static Worker start(Key key, File workDir) throws IOException {
+            LOGGER.debug("Starting worker for " + key.tool.getName());
+            var process = new ProcessBuilder(
+                    key.launcher.getAbsolutePath(),
+                    "-cp", workerClasspath,
+                    WORKER_MAIN,
+                    key.tool.getAbsolutePath(),
+                    key.main
+                )
+                .directory(workDir)
+                .start();
+            return new Worker(process);
+        }
+
+        /** Tool output comes through stdout frames, stderr only has what the JVM prints, such as failing to start. */
+        private void pump(InputStream stream) {
+            try (var reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                for (String line; (line = reader.readLine()) != null; ) {
+                    var errors = this.errors;
+                    if (errors != null)
+                        errors.accept(line);
+                    else
+                        LOGGER.debug(line);
+                }
+            } catch (IOException e) {
+                // Already gone
+            }
+        }
+
+        private int run(List<String> args, Consumer<String> lines, @Nullable ToIntFunction<String> logHandler) throws IOException {
+            this.jobs++;
+            this.in.writeInt(args.size());
+            for (var arg : args)
+                write(arg);
+            this.in.flush();
+
+            int forcedExit = 0;
+            while (true) {
+                int type = this.out.read();
+                if (type < 0)
+                    throw new EOFException();
+
+                if (type == 'L') {
+                    var data = new byte[this.out.readInt()];
+                    this.out.readFully(data);
+                    var line = new String(data, StandardCharsets.UTF_8);
+                    lines.accept(line);
+                    if (logHandler != null && forcedExit == 0)
+                        forcedExit = logHandler.applyAsInt(line);
+                } else if (type == 'X') {
+                    int exit = this.out.readInt();
+                    this.used = this.out.readLong();
+                    this.max = this.out.readLong();
+
+                    var exitValue = forcedExit == 0 ? exit : forcedExit;
+                    if (exitValue != 0)
+                        lines.accept("Process returned non-zero exit value: " + exitValue);
+                    return exitValue;
+                } else {
+                    throw new IOException("Unknown worker frame: " + type);
+                }
+            }
+        }
+
+        private void write(String value) throws IOException {
+            var data = value.getBytes(StandardCharsets.UTF_8);
+            this.in.writeInt(data.length);
+            this.in.write(data);
+        }
+
+        private int exit() {
+            try {
+                this.process.getOutputStream().close();
+            } catch (IOException e) {
+                // Already gone
+            }
+
+            try {
+                int ret = this.process.waitFor();
+                // Let the last of stderr reach the log before we report the exit code
+                this.stderr.join(1000);
+                return ret;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.process.destroyForcibly();
+                return -1;
+            }
+        }
+
+        private void close() {
+            try {
+                this.in.close();
+            } catch (IOException e) {
+                // Already gone
+            }
+
+            // Closing stdin asks the worker to exit, give it a moment before forcing it
+            try {
+                if (!this.process.waitFor(5, TimeUnit.SECONDS))
+                    this.process.destroyForcibly();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.process.destroyForcibly();
+            }
+        }
+    }
+}
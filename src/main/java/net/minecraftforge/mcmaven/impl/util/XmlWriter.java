@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Writes small XML files directly, without building a document first.
+ * <p>
+ * The output is formatted the same way the JDK's {@link javax.xml.transform.Transformer} formats it with two space
+ * indenting, which is what we used to write these files with, so the files stay byte for byte the same: each element
+ * on its own line, elements with text kept on one line, and empty elements closed with {@code />}.
+ */
+public final class XmlWriter {
+    private static final String NEWLINE = System.lineSeparator();
+
+    private final StringBuilder out = new StringBuilder();
+    private final Deque<String> elements = new ArrayDeque<>();
+    // The last start tag hasn't been closed yet, in case the element turns out to be empty
+    private boolean open = false;
+    // The current element has text, so its end tag stays on the same line
+    private boolean inline = false;
+
+    /**
+     * @param prolog Everything before the root element, such as the XML declaration
+     */
+    public XmlWriter(String prolog) {
+        this.out.append(prolog);
+    }
+
+    public XmlWriter start(String name) {
+        this.close();
+        if (!this.elements.isEmpty())
+            this.indent(this.elements.size());
+        this.out.append('<').append(name);
+        this.elements.push(name);
+        this.open = true;
+        this.inline = false;
+        return this;
+    }
+
+    public XmlWriter attribute(String name, String value) {
+        if (!this.open)
+            throw new IllegalStateException("Attributes must be written right after their element's start");
+        this.out.append(' ').append(name).append("=\"");
+        escape(this.out, value, true);
+        this.out.append('"');
+        return this;
+    }
+
+    public XmlWriter text(String value) {
+        this.close();
+        escape(this.out, value, false);
+        this.inline = true;
+        return this;
+    }
+
+    public XmlWriter comment(String value) {
+        this.close();
+        this.indent(this.elements.size());
+        this.out.append("<!--").append(value).append("-->");
+        return this;
+    }
+
+    public XmlWriter end() {
+        var name = this.elements.pop();
+        if (this.open) {
+            this.out.append("/>");
+        } else {
+            if (!this.inline)
+                this.indent(this.elements.size());
+            this.out.append("</").append(name).append('>');
+        }
+        this.open = false;
+        this.inline = false;
+        return this;
+    }
+
+    /** Writes an element that only has text, an empty string is written as an empty element like the transformer did. */
+    public XmlWriter element(String name, String value) {
+        this.start(name);
+        if (!value.isEmpty())
+            this.text(value);
+        return this.end();
+    }
+
+    /** @return The finished file */
+    public String finish() {
+        if (!this.elements.isEmpty())
+            throw new IllegalStateException("Unclosed element: " + this.elements.peek());
+        return this.out.toString() + NEWLINE;
+    }
+
+    private void close() {
+        if (this.open)
+            this.out.append('>');
+        this.open = false;
+    }
+
+    private void indent(int depth) {
+        this.out.append(NEWLINE);
+        for (int x = 0; x < depth; x++)
+            this.out.append("  ");
+    }
+
+    private static void escape(StringBuilder out, String value, boolean attribute) {
+        for (int x = 0; x < value.length(); x++) {
+            char c = value.charAt(x);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append(attribute ? "&quot;" : "\"");
+                default -> out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class RunFingerprintTests {
+	private static final String TOOL = "mavenizer.jar:1234:5678";
+	private static final List<String> ARGS = List.of("--maven", "--version", "1.21.1");
+
+	@TempDir
+	File temp;
+	File saved;
+	File input;
+	File output;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		saved = new File(temp, "fingerprints/run.json");
+		input = write("access.cfg", "public net.minecraft.Foo");
+		output = write("output/joined-1.21.1.jar", "classes");
+
+		var fingerprint = fingerprint(TOOL, ARGS, input);
+		Assertions.assertFalse(fingerprint.isUpToDate(), "Never saved");
+		fingerprint.output(output);
+		fingerprint.save();
+	}
+
+	@Test
+	public void upToDate() {
+		Assertions.assertTrue(fingerprint(TOOL, ARGS, input).isUpToDate());
+	}
+
+	@Test
+	public void command() {
+		Assertions.assertFalse(fingerprint("mavenizer.jar:1234:9999", ARGS, input).isUpToDate(), "Different jar");
+		Assertions.assertFalse(fingerprint(TOOL, List.of("--maven", "--version", "1.21.2"), input).isUpToDate(), "Different arguments");
+		Assertions.assertFalse(fingerprint(TOOL, ARGS).isUpToDate(), "Different inputs");
+	}
+
+	@Test
+	public void touched() throws IOException {
+		// Same contents with a new modified time is still up to date, it is only hashed to check
+		output.setLastModified(output.lastModified() - 10_000);
+		Assertions.assertTrue(fingerprint(TOOL, ARGS, input).isUpToDate());
+
+		// Same size but different contents
+		Files.writeString(output.toPath(), "CLASSES");
+		output.setLastModified(output.lastModified() - 20_000);
+		Assertions.assertFalse(fingerprint(TOOL, ARGS, input).isUpToDate());
+	}
+
+	@Test
+	public void changed() throws IOException {
+		var modified = input.lastModified();
+		Files.writeString(input.toPath(), "public net.minecraft.Bar");
+		// File systems with coarse times could give it the same modified time
+		input.setLastModified(modified - 10_000);
+		Assertions.assertFalse(fingerprint(TOOL, ARGS, input).isUpToDate(), "Input changed");
+	}
+
+	@Test
+	public void deleted() throws IOException {
+		Files.delete(output.toPath());
+		Assertions.assertFalse(fingerprint(TOOL, ARGS, input).isUpToDate(), "Output deleted");
+	}
+
+	@Test
+	public void invalidate() {
+		fingerprint(TOOL, ARGS, input).invalidate();
+		Assertions.assertFalse(saved.exists());
+		Assertions.assertFalse(fingerprint(TOOL, ARGS, input).isUpToDate());
+	}
+
+	private RunFingerprint fingerprint(String tool, List<String> args, File... inputs) {
+		return new RunFingerprint(saved, tool, args, List.of(inputs));
+	}
+
+	private File write(String path, String data) throws IOException {
+		var file = new File(temp, path);
+		Files.createDirectories(file.toPath().getParent());
+		Files.writeString(file.toPath(), data);
+		return file;
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.mappings;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// The CSVs used to be made by installertools' MAPPINGS_CSV task, the expected files are what it wrote for the same inputs
+public class OfficialMappingsTests {
+	@TempDir
+	File temp;
+
+	@Test
+	public void csv() throws IOException {
+		var output = new File(temp, "official.zip");
+		OfficialMappings.writeCsv(resource("joined.tsrg"), resource("client.txt"), resource("server.txt"), output);
+
+		try (var zip = new ZipFile(output)) {
+			var names = new ArrayList<String>();
+			zip.stream().forEach(entry -> names.add(entry.getName()));
+			Assertions.assertEquals(List.of("fields.csv", "methods.csv"), names);
+
+			for (var name : names) {
+				try (var is = zip.getInputStream(zip.getEntry(name))) {
+					var actual = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+					Assertions.assertEquals(Files.readString(resource(name).toPath()), actual, name + " did not match");
+				}
+			}
+		}
+	}
+
+	private File resource(String name) throws IOException {
+		var target = new File(temp, name);
+		try (var is = OfficialMappingsTests.class.getResourceAsStream("/official/" + name)) {
+			Assertions.assertNotNull(is, "Missing test file: " + name);
+			Files.copy(is, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return target;
+	}
+}
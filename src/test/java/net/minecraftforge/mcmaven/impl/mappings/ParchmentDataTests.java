@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.mappings;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ParchmentDataTests {
+	private static final String EXPORT = """
+		{
+		  "version": "1.1.0",
+		  "packages": [
+		    { "name": "net/minecraft", "javadoc": ["The game.", "All of it."] }
+		  ],
+		  "classes": [
+		    {
+		      "name": "net/minecraft/Foo",
+		      "javadoc": [],
+		      "unknown": { "nested": [1, 2, 3] },
+		      "fields": [
+		        { "name": "count", "descriptor": "I", "javadoc": ["How many \\"things\\" there are.", "Never < 0 & \\u00e9."] },
+		        { "name": "name", "descriptor": "Ljava/lang/String;", "javadoc": null }
+		      ],
+		      "methods": [
+		        {
+		          "name": "set",
+		          "descriptor": "(JI)V",
+		          "javadoc": ["Sets it."],
+		          "parameters": [
+		            { "index": 3, "name": "count", "javadoc": "The count,\\nover two lines" },
+		            { "index": 1, "name": "time" },
+		            { "name": "ignored" }
+		          ]
+		        },
+		        { "name": "set", "descriptor": "(I)V", "parameters": [] },
+		        { "name": "tick", "descriptor": "()V" }
+		      ]
+		    }
+		  ]
+		}
+		""";
+
+	@Test
+	public void javadocs() throws IOException {
+		var data = load();
+		Assertions.assertEquals("1.1.0", data.version);
+		// Lists are joined with an escaped newline, like the old MCP csvs
+		Assertions.assertEquals("The game.\\nAll of it.", data.packages.get(0).javadoc);
+
+		var cls = data.classMap.get("net/minecraft/Foo");
+		Assertions.assertNull(cls.javadoc, "Empty javadoc list");
+		Assertions.assertEquals("How many \"things\" there are.\\nNever < 0 & \u00e9.", cls.fieldMap.get("count").javadoc);
+		Assertions.assertNull(cls.fieldMap.get("name").javadoc, "Null javadoc");
+		Assertions.assertEquals("Sets it.", cls.getMethod("set", "(JI)V").javadoc);
+		Assertions.assertNull(cls.getMethod("tick", "()V").javadoc, "Missing javadoc");
+	}
+
+	@Test
+	public void parameters() throws IOException {
+		var cls = load().classMap.get("net/minecraft/Foo");
+		var set = cls.getMethod("set", "(JI)V");
+		// Indexed by local variable slot, so the long takes up slots 1 and 2
+		Assertions.assertEquals(4, set.params.length);
+		Assertions.assertNull(set.getParam(0));
+		Assertions.assertEquals("time", set.getParam(1).name);
+		Assertions.assertNull(set.getParam(2));
+		Assertions.assertEquals("count", set.getParam(3).name);
+		// Parameters are a single string, which is kept as is
+		Assertions.assertEquals("The count,\nover two lines", set.getParam(3).javadoc);
+		Assertions.assertNull(set.getParam(4));
+
+		Assertions.assertEquals(0, cls.getMethod("set", "(I)V").params.length);
+		Assertions.assertEquals(0, cls.getMethod("tick", "()V").params.length);
+		Assertions.assertNull(cls.getMethod("set", "(Z)V"));
+		Assertions.assertNull(cls.getMethod("missing", "()V"));
+	}
+
+	@Test
+	public void interning() throws IOException {
+		var cls = load().classMap.get("net/minecraft/Foo");
+		// Names are shared between the elements that use them
+		Assertions.assertSame(cls.fieldMap.get("count").name, cls.getMethod("set", "(JI)V").getParam(3).name);
+	}
+
+	private static ParchmentData load() throws IOException {
+		return ParchmentData.load(new ByteArrayInputStream(EXPORT.getBytes(StandardCharsets.UTF_8)));
+	}
+}
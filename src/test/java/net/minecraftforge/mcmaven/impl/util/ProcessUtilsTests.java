@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.impl.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ProcessUtilsTests {
+	@TempDir
+	File temp;
+
+	@Test
+	public void tail() {
+		var tail = new ProcessUtils.Tail();
+		for (int x = 0; x < ProcessUtils.TAIL_LINES + 50; x++)
+			tail.accept("line " + x);
+
+		var lines = tail.lines();
+		Assertions.assertEquals(ProcessUtils.TAIL_LINES, lines.size());
+		Assertions.assertEquals("line 50", lines.get(0));
+		Assertions.assertEquals("line " + (ProcessUtils.TAIL_LINES + 49), lines.get(lines.size() - 1));
+	}
+
+	@Test
+	public void linesFromLog() throws IOException {
+		var log = new File(temp, "decompile.log");
+		Files.write(log.toPath(), List.of(
+			"Java:      /usr/bin/java",
+			"Arguments: '--input, joined.jar'",
+			ProcessUtils.LOG_SEPARATOR,
+			"Decompiling",
+			// Only the first separator is the end of our header
+			ProcessUtils.LOG_SEPARATOR,
+			"Done"
+		));
+
+		var tail = new ProcessUtils.Tail();
+		tail.accept("Done");
+		var result = new ProcessUtils.Result(tail, log, 0);
+		Assertions.assertEquals(List.of("Done"), result.tail());
+		Assertions.assertEquals(List.of("Decompiling", ProcessUtils.LOG_SEPARATOR, "Done"), result.lines());
+	}
+
+	@Test
+	public void linesWithoutLog() {
+		var tail = new ProcessUtils.Tail();
+		tail.accept("Compiling");
+		tail.accept("Done");
+		var result = new ProcessUtils.Result(tail, null, 1);
+		Assertions.assertEquals(1, result.exitCode);
+		Assertions.assertEquals(List.of("Compiling", "Done"), result.lines());
+	}
+}
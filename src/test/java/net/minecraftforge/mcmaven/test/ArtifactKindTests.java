@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.test;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.minecraftforge.mcmaven.impl.MinecraftMaven;
+import net.minecraftforge.mcmaven.impl.util.Artifact;
+
+public class ArtifactKindTests {
+	@Test
+	public void kinds() {
+		kind("net.minecraft:joined:1.21.1", "classes");
+		kind("net.minecraft:joined:1.21.1:sources", "sources");
+		kind("net.minecraft:joined:1.21.1:metadata@zip", "metadata");
+		kind("net.minecraft:joined:1.21.1@pom", "pom");
+		kind("net.minecraft:joined:1.21.1@module", "module");
+		kind("net.minecraft:mappings_official:1.21.1@zip", "mappings");
+		kind("net.minecraft:mappings_official:1.21.1@pom", "mappings");
+		// Variants of non-primary mappings have the mappings added to their classifier
+		kind("net.minecraft:joined:1.21.1:parchment-2024.11.17", "classes");
+		kind("net.minecraft:joined:1.21.1:sources-parchment-2024.11.17", "sources");
+	}
+
+	@Test
+	public void multiple() {
+		var selected = MinecraftMaven.only(List.of("pom", "module"));
+		Assertions.assertTrue(selected.test(Artifact.from("net.minecraft:joined:1.21.1@pom")));
+		Assertions.assertTrue(selected.test(Artifact.from("net.minecraft:joined:1.21.1@module")));
+		Assertions.assertFalse(selected.test(Artifact.from("net.minecraft:joined:1.21.1")));
+		Assertions.assertFalse(selected.test(Artifact.from("net.minecraft:joined:1.21.1:sources")));
+	}
+
+	@Test
+	public void unknown() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> MinecraftMaven.only(List.of("classes", "javadoc")));
+	}
+
+	private void kind(String descriptor, String kind) {
+		var artifact = Artifact.from(descriptor);
+		for (var other : MinecraftMaven.KINDS) {
+			var selected = MinecraftMaven.only(List.of(other)).test(artifact);
+			Assertions.assertEquals(kind.equals(other), selected, descriptor + " selected by '" + other + "'");
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.minecraftforge.mcmaven.impl.cache.BlobStore;
+
+public class BlobStoreTests {
+	private static final String DATA = "decompiled classes";
+
+	@TempDir
+	File temp;
+	File outputs;
+	BlobStore blobs;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		// Blobs are hardlinks, which need link counts to tell shared outputs apart
+		Assumptions.assumeTrue(Files.getFileStore(temp.toPath()).supportsFileAttributeView("unix"), "No hardlink counts");
+		outputs = new File(temp, "outputs");
+		blobs = new BlobStore(new File(temp, "blobs"), outputs);
+	}
+
+	@Test
+	public void link() throws IOException {
+		var first = write("1.21.1/joined.jar");
+		var second = write("1.21.2/joined.jar");
+		blobs.store(first);
+		blobs.store(second);
+
+		Assertions.assertTrue(Files.isSameFile(first.toPath(), second.toPath()), "Identical outputs were not linked");
+		Assertions.assertEquals(2, blobs.references(hash()));
+		Assertions.assertEquals(DATA, Files.readString(second.toPath()));
+		// Storing it again is a no-op
+		blobs.store(first);
+		Assertions.assertEquals(2, blobs.references(hash()));
+	}
+
+	@Test
+	public void readOnly() throws IOException {
+		var output = write("1.21.1/joined.jar");
+		blobs.store(output);
+		Assertions.assertFalse(writable(output), "Linked output can be written to");
+
+		// Once its blob is gone nothing else shares it, so it is made writable in place rather than removed
+		Files.delete(new File(temp, "blobs/" + hash().substring(0, 2) + '/' + hash()).toPath());
+		blobs.detach(output);
+		Assertions.assertTrue(output.exists());
+		Assertions.assertTrue(writable(output), "Detached output is still read only");
+	}
+
+	@Test
+	public void detach() throws IOException {
+		var first = write("1.21.1/joined.jar");
+		var second = write("1.21.2/joined.jar");
+		blobs.store(first);
+		blobs.store(second);
+
+		// Linked outputs are removed, so rewriting one can't change the other
+		blobs.detach(first);
+		Assertions.assertFalse(first.exists(), "Shared output was not unlinked");
+		Assertions.assertEquals(DATA, Files.readString(second.toPath()));
+		Assertions.assertEquals(1, blobs.references(hash()));
+	}
+
+	@Test
+	public void collect() throws IOException {
+		var first = write("1.21.1/joined.jar");
+		var second = write("1.21.2/joined.jar");
+		blobs.store(first);
+		blobs.store(second);
+
+		// Still referenced by the second output
+		Files.delete(first.toPath());
+		Assertions.assertEquals(0, blobs.collect());
+		Assertions.assertEquals(1, blobs.references(hash()));
+
+		// Rewritten outputs don't count, as they are no longer the same file
+		Files.delete(second.toPath());
+		Files.writeString(second.toPath(), DATA);
+		Assertions.assertEquals(DATA.length(), blobs.collect());
+		Assertions.assertEquals(0, blobs.references(hash()));
+		Assertions.assertEquals(DATA, Files.readString(second.toPath()));
+	}
+
+	@Test
+	public void unmanaged() throws IOException {
+		var output = new File(temp, "elsewhere/joined.jar");
+		Files.createDirectories(output.toPath().getParent());
+		Files.writeString(output.toPath(), DATA);
+		blobs.store(output);
+
+		Assertions.assertEquals(0, blobs.references(hash()));
+		Assertions.assertTrue(writable(output));
+	}
+
+	private File write(String path) throws IOException {
+		var file = new File(outputs, path);
+		Files.createDirectories(file.toPath().getParent());
+		Files.writeString(file.toPath(), DATA);
+		return file;
+	}
+
+	// Checks the permission itself, as root can write to anything
+	private static boolean writable(File file) throws IOException {
+		return Files.getPosixFilePermissions(file.toPath()).contains(PosixFilePermission.OWNER_WRITE);
+	}
+
+	private static String hash() {
+		try {
+			var digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(DATA.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
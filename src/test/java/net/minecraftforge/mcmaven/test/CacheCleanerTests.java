@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.minecraftforge.mcmaven.impl.cache.AccessIndex;
+import net.minecraftforge.mcmaven.impl.cache.CacheCleaner;
+
+public class CacheCleanerTests {
+	@TempDir
+	File temp;
+
+	@Test
+	public void sizes() {
+		Assertions.assertEquals(123, CacheCleaner.parseSize("123"));
+		Assertions.assertEquals(1024, CacheCleaner.parseSize("1K"));
+		Assertions.assertEquals(1024, CacheCleaner.parseSize("1KB"));
+		Assertions.assertEquals(500L << 20, CacheCleaner.parseSize("500M"));
+		Assertions.assertEquals(20L << 30, CacheCleaner.parseSize("20g"));
+		Assertions.assertEquals(2L << 40, CacheCleaner.parseSize(" 2 T "));
+		Assertions.assertEquals(10, CacheCleaner.parseSize("10B"));
+	}
+
+	@Test
+	public void invalidSizes() {
+		for (var value : List.of("", "M", "abc", "1.5G", "-", "10X"))
+			Assertions.assertThrows(IllegalArgumentException.class, () -> CacheCleaner.parseSize(value), value);
+	}
+
+	@Test
+	public void accessIndex() throws IOException {
+		var used = file("1.21.1/joined.jar");
+		var other = file("1.21.2/joined.jar");
+
+		var index = new AccessIndex(temp);
+		index.record(used);
+		index.record(other);
+		Assertions.assertEquals(2, index.accessed().size());
+		index.flush();
+
+		// A later run sees what earlier ones used
+		var times = new AccessIndex(temp).load();
+		Assertions.assertEquals(2, times.size());
+		Assertions.assertTrue(times.containsKey(used.getAbsoluteFile()));
+
+		var next = new AccessIndex(temp);
+		next.forget(List.of(other));
+		Assertions.assertFalse(new AccessIndex(temp).load().containsKey(other.getAbsoluteFile()), "Evicted file was not forgotten");
+
+		// Files that are gone are dropped when the index is written
+		Files.delete(used.toPath());
+		var last = new AccessIndex(temp);
+		last.record(other);
+		last.flush();
+		Assertions.assertEquals(List.of(other.getAbsoluteFile()), List.copyOf(new AccessIndex(temp).load().keySet()));
+	}
+
+	private File file(String path) throws IOException {
+		var file = new File(temp, path);
+		Files.createDirectories(file.toPath().getParent());
+		Files.writeString(file.toPath(), path);
+		return file;
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.minecraftforge.mcmaven.impl.util.DecompileHeap;
+
+public class DecompileHeapTests {
+	private static final long MB = 1L << 20;
+
+	@TempDir
+	File temp;
+	File tool;
+	File input;
+	byte[] bytecode;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		DecompileHeap.init(new File(temp, "history"));
+		tool = new File(temp, "vineflower-1.11.1.jar");
+
+		// Our own class is as good as any other
+		var name = DecompileHeapTests.class.getName().replace('.', '/') + ".class";
+		try (var is = DecompileHeapTests.class.getClassLoader().getResourceAsStream(name)) {
+			bytecode = is.readAllBytes();
+		}
+		input = new File(temp, "joined.jar");
+		try (var zip = new ZipOutputStream(new FileOutputStream(input))) {
+			zip.putNextEntry(new ZipEntry(name));
+			zip.write(bytecode);
+			zip.closeEntry();
+			zip.putNextEntry(new ZipEntry("data/pack.mcmeta"));
+			zip.write("{}".getBytes());
+			zip.closeEntry();
+		}
+	}
+
+	@Test
+	public void estimate() {
+		var estimate = DecompileHeap.estimate(tool, input);
+		Assertions.assertNotNull(estimate);
+		Assertions.assertEquals(1, estimate.stats().classes());
+		Assertions.assertEquals(bytecode.length, estimate.stats().bytecode());
+		Assertions.assertTrue(estimate.stats().largestMethod() > 0, "No methods found");
+
+		// Rounded up to 256MB, never less than 1GB, and never more than the machine allows
+		Assertions.assertEquals(0, estimate.max() % (256 * MB));
+		Assertions.assertTrue(estimate.max() >= Math.min(1024 * MB, estimate.limit()));
+		Assertions.assertTrue(estimate.max() <= estimate.limit());
+
+		Assertions.assertNull(DecompileHeap.estimate(tool, new File(temp, "missing.jar")));
+	}
+
+	@Test
+	public void args() {
+		var estimate = DecompileHeap.estimate(tool, input);
+		var log = new File(temp, "gc.log");
+		var args = estimate.args(21, log);
+		Assertions.assertTrue(args.contains("-Xmx" + (estimate.max() / MB) + 'M'), args.toString());
+		Assertions.assertTrue(args.contains("-Xms" + (estimate.max() / MB / 2) + 'M'), args.toString());
+		Assertions.assertTrue(args.contains("-Xlog:gc:file=\"" + log.getAbsolutePath() + '"'), args.toString());
+		// Java 8 has the old GC log flag
+		Assertions.assertTrue(estimate.args(8, log).contains("-Xloggc:" + log.getAbsolutePath()));
+	}
+
+	@Test
+	public void history() throws IOException {
+		var first = DecompileHeap.estimate(tool, input);
+		var log = new File(temp, "gc.log");
+		Files.writeString(log.toPath(), """
+			[0.012s][info][gc] Using Parallel
+			[1.234s][info][gc] GC(0) Pause Young (Allocation Failure) 512M->300M(1024M) 45.678ms
+			[2.345s][info][gc] GC(1) Pause Full (Ergonomics) 1800M->1200M(2048M) 456.789ms
+			[3.456s][info][gc] GC(2) Pause Young (Allocation Failure) 1500M->900M(2048M) 12.345ms
+			""");
+
+		// The most live data after a collection, plus the fixed overhead and headroom
+		DecompileHeap.record(first, log, false);
+		var learned = DecompileHeap.estimate(tool, input);
+		Assertions.assertEquals(Math.min(learned.limit(), 3584 * MB), learned.max());
+
+		// Running out of memory only says the whole heap wasn't enough, so the next run grows from it
+		DecompileHeap.record(learned, log, true);
+		var grown = DecompileHeap.estimate(tool, input);
+		Assertions.assertEquals(Math.min(grown.limit(), learned.max() * 3 / 2), grown.max());
+
+		// What a finished run actually needed replaces the guess
+		DecompileHeap.record(grown, log, false);
+		Assertions.assertEquals(learned.max(), DecompileHeap.estimate(tool, input).max());
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.test;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.minecraftforge.mcmaven.impl.util.FileLocks;
+
+public class FileLocksTests {
+	@TempDir
+	File temp;
+
+	@Test
+	public void reentrant() {
+		var file = new File(temp, "output.jar.lock");
+		try (var _ = FileLocks.lock(file)) {
+			try (var _ = FileLocks.lock(file)) {
+				Assertions.assertTrue(lockedElsewhere(file));
+			}
+			// Still held by the outer lock
+			Assertions.assertTrue(lockedElsewhere(file));
+		}
+		Assertions.assertFalse(lockedElsewhere(file));
+	}
+
+	@Test
+	public void shared() {
+		var file = new File(temp, "output.jar.lock");
+		try (var _ = FileLocks.lockShared(file)) {
+			// Other threads can read it too, but not write it
+			var read = CompletableFuture.supplyAsync(() -> {
+				try (var _ = FileLocks.lockShared(file)) {
+					return true;
+				}
+			}).join();
+			Assertions.assertTrue(read);
+			Assertions.assertTrue(lockedElsewhere(file));
+
+			// Waiting on ourselves would never finish
+			Assertions.assertThrows(IllegalStateException.class, () -> FileLocks.lock(file));
+		}
+		Assertions.assertFalse(lockedElsewhere(file));
+	}
+
+	@Test
+	public void closeTwice() {
+		var file = new File(temp, "output.jar.lock");
+		var held = FileLocks.lock(file);
+		held.close();
+		held.close();
+		Assertions.assertFalse(lockedElsewhere(file));
+	}
+
+	@Test
+	public void upgrade() {
+		var output = new File(temp, "output.jar");
+		var lock = FileLocks.lockFile(output);
+		var mark = FileLocks.mark();
+		// A cache hit and then a miss on the same output in one task
+		FileLocks.readOutput(output);
+		FileLocks.lockOutput(output);
+		Assertions.assertTrue(lockedElsewhere(lock));
+		// The shared lock is still on the stack, but can't be released twice
+		Assertions.assertEquals(mark + 2, FileLocks.mark());
+
+		FileLocks.release(mark);
+		Assertions.assertEquals(mark, FileLocks.mark());
+		Assertions.assertFalse(lockedElsewhere(lock));
+	}
+
+	@Test
+	public void outputs() {
+		var output = new File(temp, "output.jar");
+		Assertions.assertEquals(new File(temp, "output.jar.lock").getAbsoluteFile(), FileLocks.lockFile(output));
+
+		var mark = FileLocks.mark();
+		FileLocks.lockOutput(output);
+		FileLocks.lockOutput(output);
+		Assertions.assertTrue(lockedElsewhere(FileLocks.lockFile(output)));
+		FileLocks.release(mark);
+		Assertions.assertFalse(lockedElsewhere(FileLocks.lockFile(output)));
+	}
+
+	private static boolean lockedElsewhere(File file) {
+		return CompletableFuture.supplyAsync(() -> {
+			try (var held = FileLocks.tryLock(file)) {
+				return held == null;
+			}
+		}).join();
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.minecraftforge.mcmaven.impl.data.GradleModule;
+import net.minecraftforge.mcmaven.impl.data.GradleModuleWriter;
+import net.minecraftforge.mcmaven.impl.util.Artifact;
+import net.minecraftforge.mcmaven.impl.util.POMBuilder;
+
+// The files we write have to stay byte for byte the same, or every existing repo sees them as changed
+public class GoldenFileTests {
+	@TempDir
+	File temp;
+
+	@Test
+	public void pom() throws IOException {
+		matches("joined.pom", joinedPom());
+		matches("server.pom", new POMBuilder("net.minecraft", "server", "1.21.1").description("").build());
+	}
+
+	@Test
+	public void nonGradlePom() throws Exception {
+		matches("joined-non-gradle.pom", POMBuilder.removeGradleMarker(stream(joinedPom())));
+		// Nothing to remove, so the POM is copied as is
+		Assertions.assertNull(POMBuilder.removeGradleMarker(stream(new POMBuilder("net.minecraft", "server", "1.21.1").build())));
+	}
+
+	@Test
+	public void module() throws IOException {
+		var module = joinedModule();
+		var target = new File(temp, "joined-1.21.1.module");
+		GradleModuleWriter.write(module, target);
+		matches("joined.module", Files.readString(target.toPath()));
+	}
+
+	@Test
+	public void variants() throws IOException {
+		var variants = joinedModule().variants.toArray(GradleModule.Variant[]::new);
+		var target = new File(temp, "joined-1.21.1.jar.variants");
+		GradleModuleWriter.write(variants, target);
+		matches("joined.variants", Files.readString(target.toPath()));
+		matches("joined.variants", GradleModuleWriter.toJson(variants));
+	}
+
+	private static String joinedPom() {
+		return new POMBuilder("net.minecraft", "joined", "1.21.1")
+			.description("Minecraft & \"friends\" <joined>")
+			.preferGradleModule()
+			.dependencies(dependencies -> {
+				dependencies.add(Artifact.from("com.mojang:logging:1.2.7"));
+				dependencies.add(Artifact.from("org.lwjgl:lwjgl:3.3.3:natives-windows"), POMBuilder.Dependencies.Dependency.Scope.RUNTIME);
+				dependencies.add(Artifact.from("net.minecraft:client:1.21.1:extra@zip"), null);
+			})
+			.build();
+	}
+
+	private GradleModule joinedModule() throws IOException {
+		var jar = new File(temp, "joined-1.21.1.jar");
+		Files.writeString(jar.toPath(), "classes\n");
+
+		var module = GradleModule.of(Artifact.from("net.minecraft:joined:1.21.1"));
+		module.variant(GradleModule.Variant.of("classes", variant -> {
+			variant.attribute("org.gradle.usage", "java-api");
+			variant.attribute("org.gradle.jvm.version", 21);
+			variant.attribute("net.minecraftforge.mapped", true);
+			variant.file(jar);
+			variant.dep(Artifact.from("com.mojang:logging:1.2.7"));
+			variant.dep(Artifact.from("org.lwjgl:lwjgl:3.3.3:natives-windows"));
+		}));
+		module.variant(GradleModule.Variant.of("sources", variant -> {
+			variant.attribute("org.gradle.category", "documentation");
+			variant.attribute("org.gradle.docstype", "sources");
+			var capability = new GradleModule.Variant.Capability();
+			capability.group = "net.minecraft";
+			capability.name = "joined-sources";
+			capability.version = "1.21.1";
+			variant.capabilities = List.of(capability);
+		}));
+		return module;
+	}
+
+	private static InputStream stream(String data) {
+		return new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void matches(String golden, String actual) throws IOException {
+		try (var is = GoldenFileTests.class.getResourceAsStream("/golden/" + golden)) {
+			Assertions.assertNotNull(is, "Missing golden file: " + golden);
+			var expected = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+			// The golden files are checked in with LF line endings
+			Assertions.assertEquals(expected, actual.replace(System.lineSeparator(), "\n"), "Output did not match " + golden);
+		}
+	}
+}
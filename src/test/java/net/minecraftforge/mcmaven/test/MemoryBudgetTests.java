@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.test;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.minecraftforge.mcmaven.impl.util.MemoryBudget;
+
+public class MemoryBudgetTests {
+	private static final long FALLBACK = MemoryBudget.DEFAULT_TOOL;
+
+	@Test
+	public void maxHeap() {
+		heap(2L << 30, "-Xmx2G");
+		heap(2L << 30, "-Xmx2g");
+		heap(1536L << 20, "-Xmx1536m");
+		heap(512L << 10, "-Xmx512k");
+		heap(1L << 30, "-Xmx1073741824");
+		heap(3L << 30, "-XX:MaxHeapSize=3g");
+	}
+
+	@Test
+	public void largest() {
+		// The initial size can be larger than the maximum the JVM would otherwise pick
+		heap(4L << 30, "-Xms4G", "-Xmx2G");
+		heap(2L << 30, "-Xms1G", "-Xmx2G");
+		heap(3L << 30, "-Xmx1G", "-XX:MaxHeapSize=3G");
+	}
+
+	@Test
+	public void fallback() {
+		heap(FALLBACK);
+		heap(FALLBACK, "-XX:+UseParallelGC", "-Dfile.encoding=UTF-8");
+		// Unknown sizes are ignored rather than failing the run
+		heap(FALLBACK, "-Xmxlots");
+		heap(FALLBACK, "-Xmx");
+		heap(1L << 30, "-Xmxlots", "-Xmx1G");
+	}
+
+	private static void heap(long expected, String... jvm) {
+		Assertions.assertEquals(expected, MemoryBudget.heapOf(List.of(jvm), FALLBACK), String.join(" ", jvm));
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.minecraftforge.mcmaven.impl.util.Metrics;
+
+// Metrics are global to the JVM, so these use names nothing else records
+public class MetricsTests {
+	@TempDir
+	File temp;
+
+	@Test
+	public void counters() throws IOException {
+		Metrics.count("mavenizer_test_counter_total", 2, "kind", "plain");
+		Metrics.count("mavenizer_test_counter_total", 3, "kind", "plain");
+		Metrics.count("mavenizer_test_counter_total", 1, "kind", "quote\" slash\\ newline\n");
+		Metrics.time("mavenizer_test_seconds_total", 1_500_000_000L, "command", "java");
+
+		var text = write();
+		contains(text, """
+			# TYPE mavenizer_test_counter_total counter
+			mavenizer_test_counter_total{kind="plain"} 5
+			mavenizer_test_counter_total{kind="quote\\" slash\\\\ newline\\n"} 1
+			""");
+		contains(text, """
+			# TYPE mavenizer_test_seconds_total counter
+			mavenizer_test_seconds_total{command="java"} 1.5
+			""");
+	}
+
+	@Test
+	public void histograms() throws IOException {
+		Metrics.observe("mavenizer_test_duration_seconds", 20_000_000L, "type", "decompile");
+		Metrics.observe("mavenizer_test_duration_seconds", 2_000_000_000L, "type", "decompile");
+		Metrics.observe("mavenizer_test_duration_seconds", 1_000_000_000_000L, "type", "decompile");
+
+		// Buckets are cumulative, and anything over the largest one is only in +Inf
+		contains(write(), """
+			# TYPE mavenizer_test_duration_seconds histogram
+			mavenizer_test_duration_seconds_bucket{type="decompile",le="0.01"} 0
+			mavenizer_test_duration_seconds_bucket{type="decompile",le="0.05"} 1
+			mavenizer_test_duration_seconds_bucket{type="decompile",le="0.1"} 1
+			mavenizer_test_duration_seconds_bucket{type="decompile",le="0.5"} 1
+			mavenizer_test_duration_seconds_bucket{type="decompile",le="1.0"} 1
+			mavenizer_test_duration_seconds_bucket{type="decompile",le="5.0"} 2
+			mavenizer_test_duration_seconds_bucket{type="decompile",le="10.0"} 2
+			mavenizer_test_duration_seconds_bucket{type="decompile",le="30.0"} 2
+			mavenizer_test_duration_seconds_bucket{type="decompile",le="60.0"} 2
+			mavenizer_test_duration_seconds_bucket{type="decompile",le="120.0"} 2
+			mavenizer_test_duration_seconds_bucket{type="decompile",le="300.0"} 2
+			mavenizer_test_duration_seconds_bucket{type="decompile",le="+Inf"} 3
+			mavenizer_test_duration_seconds_sum{type="decompile"} 1002.02
+			mavenizer_test_duration_seconds_count{type="decompile"} 3
+			""");
+	}
+
+	@Test
+	public void format() throws IOException {
+		Metrics.count(Metrics.PROCESSES, 0, "command", "test");
+		var text = write();
+		contains(text, "# HELP " + Metrics.PROCESSES + " Child processes started, by command\n# TYPE " + Metrics.PROCESSES + " counter\n");
+		contains(text, "# TYPE " + Metrics.PEAK_HEAP + " gauge\n" + Metrics.PEAK_HEAP + ' ');
+
+		// Plain Prometheus text, every line ends with a newline and there is no OpenMetrics terminator
+		Assertions.assertTrue(text.endsWith("\n"));
+		Assertions.assertFalse(text.contains("# EOF"));
+		for (var line : text.split("\n")) {
+			if (!line.startsWith("#"))
+				Assertions.assertTrue(line.matches("[a-z_]+(\\{.*\\})? \\S+"), "Invalid sample: " + line);
+		}
+	}
+
+	private String write() throws IOException {
+		var file = new File(temp, "mavenizer.prom");
+		Metrics.write(file);
+		return Files.readString(file.toPath());
+	}
+
+	private static void contains(String text, String expected) {
+		Assertions.assertTrue(text.contains(expected), "Missing:\n" + expected + "\nIn:\n" + text);
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.minecraftforge.mcmaven.impl.cache.RemoteCache;
+import net.minecraftforge.mcmaven.impl.cache.RemoteCacheServer;
+import net.minecraftforge.mcmaven.impl.util.TrackedHashStore;
+import net.minecraftforge.util.hash.HashStore;
+
+// Two machines with their caches in different places have to agree on the keys, or nothing is ever shared
+public class RemoteCacheTests {
+	@TempDir
+	File temp;
+
+	@Test
+	public void sharedBetweenCaches() throws IOException {
+		var server = new RemoteCacheServer(new File(temp, "server"), 0);
+		server.start();
+		try {
+			var url = "http://localhost:" + server.port() + '/';
+			var first = new File(temp, "first/cache");
+			var second = new File(temp, "elsewhere/second");
+
+			var push = new RemoteCache(url, true, first);
+			var output = output(first);
+			var mark = RemoteCache.mark();
+			Assertions.assertFalse(push.fetch(output, cache(first, output)), "Empty server had the output");
+			Files.writeString(output.toPath(), "decompiled");
+			RemoteCache.complete(mark, true);
+
+			var pull = new RemoteCache(url, false, second);
+			var other = output(second);
+			Assertions.assertEquals(push.key(output, cache(first, output)), pull.key(other, cache(second, other)));
+			Assertions.assertTrue(pull.fetch(other, cache(second, other)), "Second cache did not hit");
+			Assertions.assertEquals("decompiled", Files.readString(other.toPath()));
+
+			// A different input is a different key
+			Files.writeString(new File(second, "1.21.1/joined.jar").toPath(), "changed");
+			Assertions.assertFalse(pull.fetch(other, cache(second, other)), "Changed input still hit");
+		} finally {
+			server.stop();
+		}
+	}
+
+	private static File output(File root) throws IOException {
+		var jar = new File(root, "1.21.1/joined.jar");
+		Files.createDirectories(jar.toPath().getParent());
+		Files.writeString(jar.toPath(), "classes");
+		var output = new File(root, "1.21.1/decomp/output.jar");
+		Files.createDirectories(output.toPath().getParent());
+		return output;
+	}
+
+	private static TrackedHashStore cache(File root, File output) {
+		return new TrackedHashStore(output, HashStore::fromFile)
+			.add(new File(root, "1.21.1/joined.jar"))
+			.add("decompiler", "vineflower")
+			.add("libraries", new File(root, "1.21.1/joined.jar"));
+	}
+}
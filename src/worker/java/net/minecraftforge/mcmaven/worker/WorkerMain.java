@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.mcmaven.worker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A long lived JVM that runs a tool's main method once per request, so bulk runs don't pay for a new JVM every time.
+ * <p>
+ * This runs on whatever JDK the tool needs, so it is built for Java 8 and only uses the JDK.
+ * <p>
+ * Requests are read from stdin as an argument count followed by each argument. Output is written to the real stdout
+ * as frames: {@code 'L'} and a line of tool output, or {@code 'X'} and the exit code and heap usage once the tool is done.
+ * Each request gets a new class loader, so tools can't leak static state into the next one.
+ * If the tool calls {@link System#exit(int)}, this JVM exits and the caller uses its exit code instead.
+ */
+public final class WorkerMain {
+    private WorkerMain() { }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2)
+            throw new IllegalArgumentException("Usage: WorkerMain <tool jar> <main class>");
+
+        URL[] classpath = { new File(args[0]).toURI().toURL() };
+        String mainClass = args[1];
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        LineFrames frames = new LineFrames(out);
+        PrintStream log = new PrintStream(frames, true, "UTF-8");
+        System.setOut(log);
+        System.setErr(log);
+
+        // Tools only see the JDK, not us
+        ClassLoader parent = ClassLoader.getSystemClassLoader().getParent();
+
+        while (true) {
+            String[] run;
+            try {
+                run = new String[in.readInt()];
+            } catch (EOFException e) {
+                return; // Closed by the pool
+            }
+            for (int x = 0; x < run.length; x++)
+                run[x] = read(in);
+
+            int exit = 0;
+            Thread thread = Thread.currentThread();
+            try (URLClassLoader loader = new URLClassLoader(classpath, parent)) {
+                thread.setContextClassLoader(loader);
+                Method main = Class.forName(mainClass, true, loader).getMethod("main", String[].class);
+                main.invoke(null, (Object) run);
+            } catch (InvocationTargetException e) {
+                e.getCause().printStackTrace(log);
+                exit = 1;
+            } catch (Throwable t) {
+                t.printStackTrace(log);
+                exit = 1;
+            } finally {
+                thread.setContextClassLoader(null);
+            }
+            log.flush();
+            frames.end();
+
+            Runtime runtime = Runtime.getRuntime();
+            synchronized (out) {
+                out.writeByte('X');
+                out.writeInt(exit);
+                out.writeLong(runtime.totalMemory() - runtime.freeMemory());
+                out.writeLong(runtime.maxMemory());
+                out.flush();
+            }
+        }
+    }
+
+    private static String read(DataInputStream in) throws IOException {
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /** Sends everything the tool prints as one frame per line. Tools may print from many threads. */
+    private static final class LineFrames extends OutputStream {
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        private LineFrames(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            if (b == '\n')
+                this.send();
+            else if (b != '\r')
+                this.line.write(b);
+        }
+
+        /** Sends the last line if it didn't end with a new line, flushing alone would split lines that are printed in parts. */
+        private synchronized void end() throws IOException {
+            if (this.line.size() > 0)
+                this.send();
+        }
+
+        private void send() throws IOException {
+            byte[] data = this.line.toByteArray();
+            this.line.reset();
+            synchronized (this.out) {
+                this.out.writeByte('L');
+                this.out.writeInt(data.length);
+                this.out.write(data);
+                this.out.flush();
+            }
+        }
+    }
+}